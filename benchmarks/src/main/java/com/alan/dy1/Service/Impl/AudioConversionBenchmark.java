@@ -0,0 +1,80 @@
+package com.alan.dy1.Service.Impl;
+
+import com.alan.dy1.benchmark.Fixtures;
+import com.alan.dy1.trace.PipelineTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MP3转WAV的吞吐和分配
+ * convertMp3ToWav转换成功后会删除源文件，每次调用前把样本复制到临时目录，复制不计入耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AudioConversionBenchmark {
+
+    // 与AudioConversionServiceImpl的输出目录一致，相对于工作目录
+    private static final Path OUTPUT_DIR = Paths.get("douyin_tools/converted_audio");
+
+    @Param({"short", "medium", "long"})
+    public String length;
+
+    private AudioConversionServiceImpl service;
+    private Path fixture;
+    private Path sourceDir;
+    private String fileName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        service = new AudioConversionServiceImpl();
+        Fixtures.inject(service, "pipelineTracer", new PipelineTracer());
+        Fixtures.inject(service, "maxConcurrentDecodes", 0);
+        service.init();
+        fixture = Fixtures.audioFixture(length);
+        sourceDir = Files.createTempDirectory("dy1-bench-mp3");
+        fileName = "fixture-" + length + ".mp3";
+    }
+
+    @Setup(Level.Invocation)
+    public void copyFixture() throws IOException {
+        Files.copy(fixture, sourceDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(OUTPUT_DIR.resolve(fileName.replace(".mp3", ".wav")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(sourceDir.resolve(fileName));
+        Files.deleteIfExists(sourceDir);
+    }
+
+    @Benchmark
+    public void convertMp3ToWav() throws IOException {
+        service.convertMp3ToWav(sourceDir.toString(), fileName);
+    }
+}
@@ -0,0 +1,140 @@
+package com.alan.dy1.Service.Impl;
+
+import com.alan.dy1.benchmark.Fixtures;
+import com.alan.dy1.process.ProcessResult;
+import com.alan.dy1.process.ProcessRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次性脚本调用时解析标准输出的JSON
+ * 通过GetWorkCountService、AudioService的公开方法调用，进程执行换成直接返回固定输出的ProcessRunner，
+ * 测到的是脚本退出后服务自身的开销（每次调用新建ObjectMapper、解析JSON、组装响应）；
+ * *SharedMapperParse只用复用的ObjectMapper解析同一输出，作为对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptOutputParsingBenchmark {
+
+    private static final String USER_URL = "https://www.douyin.com/user/benchmark";
+
+    private static final String WORKS_COUNT_OUTPUT =
+            "{\"success\": true, \"number\": \"1.2万\", \"message\": \"成功获取作品数量\"}\n";
+
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+
+    private GetWorkCountServiceImpl getWorkCountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        getWorkCountService = new GetWorkCountServiceImpl();
+        injectScriptSettings(getWorkCountService, WORKS_COUNT_OUTPUT);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> worksCount() {
+        return getWorkCountService.getUserWorksCount(USER_URL);
+    }
+
+    @Benchmark
+    public JsonNode worksCountSharedMapperParse() throws IOException {
+        return sharedMapper.readTree(WORKS_COUNT_OUTPUT.trim());
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> downloadResults(DownloadOutput download) {
+        return download.service.downloadAndConvertAudio(USER_URL, download.works);
+    }
+
+    @Benchmark
+    public JsonNode downloadResultsSharedMapperParse(DownloadOutput download) throws IOException {
+        return sharedMapper.readTree(download.output.trim());
+    }
+
+    /**
+     * 设置一次性脚本模式的字段，进程执行直接返回output
+     */
+    private static void injectScriptSettings(Object service, String output) {
+        Fixtures.inject(service, "processRunner", new FixedOutputProcessRunner(output));
+        Fixtures.inject(service, "pythonCommand", "python");
+        Fixtures.inject(service, "scriptDir", Fixtures.scriptDir().toString());
+        Fixtures.inject(service, "processTimeoutMillis", 180000L);
+        Fixtures.inject(service, "workerEnabled", false);
+    }
+
+    /**
+     * 不启动进程，直接以退出码0和固定的标准输出完成
+     */
+    private static class FixedOutputProcessRunner extends ProcessRunner {
+
+        private final String output;
+
+        FixedOutputProcessRunner(String output) {
+            this.output = output;
+        }
+
+        @Override
+        public CompletableFuture<ProcessResult> run(String scriptName, List<String> command, File workingDirectory,
+                                                    Map<String, String> environment, Duration timeout) {
+            return CompletableFuture.completedFuture(new ProcessResult(0, output, "", false, 0));
+        }
+    }
+
+    /**
+     * 下载脚本的输出：每个作品一个结果，与脚本一次下载多个作品时的格式一致
+     */
+    @State(Scope.Thread)
+    public static class DownloadOutput {
+
+        // 下载脚本一次返回的作品数
+        @Param({"1", "5", "20"})
+        public int works;
+
+        String output;
+
+        AudioServiceImpl service;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            StringBuilder builder = new StringBuilder("[");
+            for (int i = 0; i < works; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                String filePath = "douyin_tools/audio/王小雨的抖音 - 抖音_17645744" + i + "_1.mp3";
+                builder.append("{\"success\": true, \"file_path\": \"").append(filePath)
+                        .append("\", \"message\": \"音频已保存到: ").append(filePath)
+                        .append("\", \"video_url\": \"https://www.douyin.com/video/74").append(1000000000000000L + i)
+                        .append("\"}");
+            }
+            output = builder.append("]\n").toString();
+            service = new AudioServiceImpl();
+            injectScriptSettings(service, output);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.alan.dy1.asr;
+
+import com.alan.dy1.benchmark.Fixtures;
+import com.alibaba.fastjson.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 识别请求体的构建：Base64编码以及SpeechRecognitionServiceImpl提交的JSON请求体
+ * stream*为当前的流式写出，inMemoryJson为整段编码后拼进JSON字符串的做法，作为对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsrRequestBodyBenchmark {
+
+    // 音频时长（秒），60秒为短语音接口的上限
+    @Param({"5", "30", "60"})
+    public int seconds;
+
+    private ByteBuffer pcm;
+    private byte[] pcmBytes;
+    private Path pcmFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pcm = Fixtures.pcm(seconds);
+        pcmBytes = new byte[pcm.remaining()];
+        pcm.duplicate().get(pcmBytes);
+        pcmFile = Files.createTempFile("dy1-bench", ".pcm");
+        try (FileChannel channel = FileChannel.open(pcmFile, StandardOpenOption.WRITE)) {
+            channel.write(pcm.duplicate());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(pcmFile);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return Base64.getEncoder().encodeToString(pcmBytes);
+    }
+
+    @Benchmark
+    public long streamFromBuffer(Blackhole blackhole) throws IOException {
+        AsrRequestBody body = AsrRequestBody.ofBuffer(requestFields("pcm"), pcm);
+        body.writeTo(new BlackholeOutputStream(blackhole));
+        return body.contentLength();
+    }
+
+    @Benchmark
+    public long streamFromFile(Blackhole blackhole) throws IOException {
+        AsrRequestBody body = AsrRequestBody.ofFile(requestFields("pcm"), pcmFile);
+        body.writeTo(new BlackholeOutputStream(blackhole));
+        return body.contentLength();
+    }
+
+    @Benchmark
+    public byte[] inMemoryJson() {
+        JSONObject requestBody = requestFields("pcm");
+        requestBody.put("len", pcmBytes.length);
+        requestBody.put("speech", Base64.getEncoder().encodeToString(pcmBytes));
+        return requestBody.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 与SpeechRecognitionServiceImpl.requestFields相同的字段，token为固定值
+     */
+    private static JSONObject requestFields(String format) {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("format", format);
+        requestBody.put("rate", 16000);
+        requestBody.put("channel", 1);
+        requestBody.put("cuid", "00-00-00-00-00-00");
+        requestBody.put("dev_pid", 1537);
+        requestBody.put("token", "24.0123456789abcdef0123456789abcdef.2592000.1700000000.282335-00000000");
+        return requestBody;
+    }
+
+    /**
+     * 写入的数据交给Blackhole，避免整段输出被优化掉
+     */
+    private static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.alan.dy1.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试的样本和装配工具
+ * 样本目录由系统属性benchmark.fixtures指定，默认为仓库中的douyin_tools/audio
+ */
+public final class Fixtures {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private Fixtures() {
+    }
+
+    /**
+     * 样本目录
+     */
+    public static Path fixturesDir() {
+        return Paths.get(System.getProperty("benchmark.fixtures", "../douyin_tools/audio"));
+    }
+
+    /**
+     * 脚本目录，由系统属性benchmark.scripts指定，默认为仓库中的douyin_tools
+     * 一次性脚本模式调用前会检查脚本文件是否存在
+     */
+    public static Path scriptDir() {
+        return Paths.get(System.getProperty("benchmark.scripts", "../douyin_tools"));
+    }
+
+    /**
+     * 样本目录下的MP3，按文件大小从小到大排序
+     */
+    public static List<Path> audioFixtures() throws IOException {
+        try (Stream<Path> files = Files.list(fixturesDir())) {
+            List<Path> mp3s = files.filter(file -> file.getFileName().toString().toLowerCase().endsWith(".mp3"))
+                    .sorted(Comparator.comparingLong(Fixtures::size))
+                    .collect(Collectors.toList());
+            if (mp3s.isEmpty()) {
+                throw new IOException("样本目录中没有MP3: " + fixturesDir().toAbsolutePath());
+            }
+            return mp3s;
+        }
+    }
+
+    /**
+     * 按长度选取样本：short为最小的文件，long为最大的文件，medium为中间的文件
+     */
+    public static Path audioFixture(String length) throws IOException {
+        List<Path> mp3s = audioFixtures();
+        switch (length) {
+            case "short":
+                return mp3s.get(0);
+            case "medium":
+                return mp3s.get(mp3s.size() / 2);
+            case "long":
+                return mp3s.get(mp3s.size() - 1);
+            default:
+                throw new IllegalArgumentException("未知的样本长度: " + length);
+        }
+    }
+
+    /**
+     * 生成指定时长的16kHz单声道s16le PCM，内容为带噪声的正弦波，避免全零数据被压缩或特殊处理
+     */
+    public static ByteBuffer pcm(int seconds) {
+        int samples = seconds * SAMPLE_RATE;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        long seed = 42;
+        for (int i = 0; i < samples; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            double noise = (seed >>> 40) / (double) (1 << 24) - 0.5;
+            buffer.putShort((short) (Math.sin(i * 2 * Math.PI * 440 / SAMPLE_RATE) * 8000 + noise * 2000));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 给@Autowired等字段赋值，基准测试不启动Spring容器
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法设置字段 " + fieldName, e);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
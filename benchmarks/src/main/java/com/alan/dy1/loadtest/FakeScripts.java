@@ -0,0 +1,86 @@
+package com.alan.dy1.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 生成替身脚本目录：同一份脚本复制为查询作品数和下载音频两个脚本，旁边写入fake_scripts.json
+ * 每个博主的新作品数由URL的CRC32决定，脚本和这里按同样的规则计算，运行结束后可以核对识别结果数
+ */
+public class FakeScripts {
+
+    private static final String SCRIPT_RESOURCE = "/loadtest/fake_douyin_tools.py";
+
+    // 所有博主入库时的作品数，脚本返回的作品数在此基础上加上新作品数
+    static final int BASE_WORKS = 100;
+
+    // 有新作品的博主比例
+    private final double newWorksRatio;
+    // 单个博主的新作品数上限
+    private final int maxNewWorks;
+
+    public FakeScripts(double newWorksRatio, int maxNewWorks) {
+        this.newWorksRatio = newWorksRatio;
+        this.maxNewWorks = maxNewWorks;
+    }
+
+    /**
+     * 写入脚本和配置
+     * @param scriptDir 脚本目录，即python.script-dir
+     * @param settings 各脚本的延迟和失败率，键为count和audio
+     * @param mediaBaseUrl 音频地址前缀
+     * @param audioDir 非流式模式下脚本保存MP3的目录，应为被测程序工作目录下的douyin_tools/audio
+     */
+    public void write(Path scriptDir, Map<String, Map<String, Object>> settings, String mediaBaseUrl, Path audioDir) throws IOException {
+        Files.createDirectories(scriptDir);
+        for (String name : new String[]{"get_works_count_from_url.py", "get_audio_from_url.py"}) {
+            try (InputStream in = FakeScripts.class.getResourceAsStream(SCRIPT_RESOURCE)) {
+                if (in == null) {
+                    throw new IOException("找不到替身脚本: " + SCRIPT_RESOURCE);
+                }
+                Files.copy(in, scriptDir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Map<String, Object> config = new LinkedHashMap<>(settings);
+        config.put("base_works", BASE_WORKS);
+        config.put("new_works_ratio", newWorksRatio);
+        config.put("max_new_works", maxNewWorks);
+        config.put("media_base_url", mediaBaseUrl);
+        config.put("audio_dir", audioDir.toAbsolutePath().toString());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(scriptDir.resolve("fake_scripts.json").toFile(), config);
+    }
+
+    /**
+     * 脚本为该博主返回的新作品数，与fake_douyin_tools.py中的new_works一致
+     */
+    public int newWorks(String url) {
+        CRC32 crc = new CRC32();
+        crc.update(url.getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+        if (hash % 10000 >= newWorksRatio * 10000) {
+            return 0;
+        }
+        return (int) (1 + (hash / 10000) % maxNewWorks);
+    }
+
+    /**
+     * 单个脚本的设置
+     * @param latencyMillis 平均延迟
+     * @param failureRate 失败率
+     */
+    public static Map<String, Object> settings(long latencyMillis, double failureRate) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("latency_ms", latencyMillis);
+        settings.put("failure_rate", failureRate);
+        return settings;
+    }
+}
@@ -0,0 +1,226 @@
+package com.alan.dy1.loadtest;
+
+import com.alan.dy1.Config.ExecutorMetrics;
+import com.alan.dy1.Douyin1Application;
+import com.alan.dy1.Service.AllStart;
+import com.alan.dy1.Service.AudioConversionService;
+import com.alan.dy1.Service.SpeechRecognitionService;
+import com.alan.dy1.benchmark.Fixtures;
+import com.alan.dy1.domain.Douyin;
+import com.alan.dy1.domain.SweepResult;
+import com.alan.dy1.mq.InMemoryPipelineMessaging;
+import com.alan.dy1.mq.PipelineCoordinator;
+import com.alan.dy1.mq.PipelineMessaging;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.repository.DouyinRepository;
+import com.alan.dy1.repository.TranscriptRepository;
+import com.alan.dy1.trace.PipelineTracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线端到端负载测试
+ * 替身脚本代替抖音爬虫，本地替身服务代替百度接口和音频地址，进程内消息模式代替RabbitMQ，H2内存库代替MySQL；
+ * 写入一批合成博主后调用一次AllStart.startAllServices，等流水线全部处理完，输出吞吐、各阶段耗时和各组件的统计
+ * 参数通过系统属性设置，loadtest.*为负载测试本身的参数，其余属性（如python.worker.pool-size、baidu.asr.qps）直接传给被测程序
+ */
+public final class LoadTest {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final long DRAIN_POLL_MILLIS = 200;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int creators = Integer.getInteger("loadtest.creators", 2000);
+        double newWorksRatio = Double.parseDouble(System.getProperty("loadtest.new-works-ratio", "0.5"));
+        int maxNewWorks = Integer.getInteger("loadtest.max-new-works", 3);
+        long timeoutSeconds = Long.getLong("loadtest.timeout-seconds", 1800);
+        Path workDir = Paths.get(System.getProperty("loadtest.work-dir", "target/loadtest"));
+        Path resultFile = Paths.get(System.getProperty("loadtest.result", "target/loadtest-result.json"));
+
+        Map<String, Map<String, Object>> scriptSettings = new LinkedHashMap<>();
+        scriptSettings.put("count", FakeScripts.settings(Long.getLong("loadtest.count.latency-ms", 50),
+                Double.parseDouble(System.getProperty("loadtest.count.failure-rate", "0.01"))));
+        scriptSettings.put("audio", FakeScripts.settings(Long.getLong("loadtest.audio.latency-ms", 200),
+                Double.parseDouble(System.getProperty("loadtest.audio.failure-rate", "0.01"))));
+
+        byte[] media = Files.readAllBytes(Fixtures.audioFixture(System.getProperty("loadtest.media", "short")));
+        StubBaiduServer stub = new StubBaiduServer(media, Long.getLong("loadtest.asr.latency-ms", 300),
+                Integer.getInteger("loadtest.asr.qps", 10),
+                Double.parseDouble(System.getProperty("loadtest.asr.error-rate", "0.01")));
+        stub.start();
+
+        // FFmpeg默认把每个输入的格式信息打印到stderr，只保留错误
+        avutil.av_log_set_level(avutil.AV_LOG_ERROR);
+
+        FakeScripts scripts = new FakeScripts(newWorksRatio, maxNewWorks);
+        Path scriptDir = workDir.resolve("douyin_tools").toAbsolutePath();
+        scripts.write(scriptDir, scriptSettings, stub.getMediaBaseUrl(), Paths.get("douyin_tools/audio"));
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("creators", creators);
+        config.put("newWorksRatio", newWorksRatio);
+        config.put("maxNewWorks", maxNewWorks);
+        config.put("scripts", scriptSettings);
+        config.put("media", System.getProperty("loadtest.media", "short"));
+        config.put("mediaBytes", media.length);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Douyin1Application.class)
+                .profiles(InMemoryPipelineMessaging.PROFILE)
+                .properties(applicationProperties(stub, scriptDir))
+                .run(args);
+        boolean drained;
+        try {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("config", config);
+            drained = run(context, scripts, creators, timeoutSeconds, report);
+            report.put("stub", stub.getStats());
+
+            Files.createDirectories(resultFile.toAbsolutePath().getParent());
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), report);
+            printSummary(report);
+            System.out.println("完整结果: " + resultFile.toAbsolutePath());
+        } finally {
+            context.close();
+            stub.stop();
+        }
+        System.exit(drained ? 0 : 1);
+    }
+
+    /**
+     * 被测程序的默认配置，优先级最低，可以用同名系统属性覆盖
+     */
+    private static Map<String, Object> applicationProperties(StubBaiduServer stub, Path scriptDir) {
+        // application.properties中的MySQL地址优先级高于这里的默认配置，数据源改用系统属性设置，仍可在命令行覆盖
+        System.getProperties().putIfAbsent("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        System.getProperties().putIfAbsent("spring.datasource.username", "sa");
+        System.getProperties().putIfAbsent("spring.datasource.password", "");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.open-in-view", false);
+        // 运行期间可以照常访问/api/metrics/*，端口见启动日志
+        properties.put("server.port", 0);
+        properties.put("logging.level.root", "WARN");
+        properties.put("python.command", "python3");
+        properties.put("python.script-dir", scriptDir.toString());
+        properties.put("baidu.token-url", stub.getTokenUrl());
+        properties.put("baidu.asr.url", stub.getAsrUrl());
+        // 所有音频内容相同，开启缓存时只有第一次会调用识别接口
+        properties.put("baidu.asr.cache.enabled", false);
+        // 只跑一轮由负载测试发起的全量检查
+        properties.put("douyin.scheduler.enabled", false);
+        // 缩短重试等待，失败的任务在一次运行内重试完
+        properties.put("pipeline.retry.initial-delay-ms", 500);
+        return properties;
+    }
+
+    private static boolean run(ConfigurableApplicationContext context, FakeScripts scripts, int creators,
+                               long timeoutSeconds, Map<String, Object> report) throws InterruptedException {
+        int maxDownloadCount = context.getEnvironment().getProperty("audio.download.max-count", Integer.class, 20);
+        int expectedTranscripts = seedCreators(context, scripts, creators, maxDownloadCount);
+        System.out.printf("已写入 %d 个博主，预计产生 %d 条识别结果%n", creators, expectedTranscripts);
+
+        AllStart allStart = context.getBean(AllStart.class);
+        PipelineCoordinator coordinator = context.getBean(PipelineCoordinator.class);
+        long startNanos = System.nanoTime();
+        allStart.startAllServices();
+        SweepResult sweep = allStart.getLastSweepResult();
+        System.out.println("全量检查完成: " + sweep);
+
+        boolean drained = awaitDrain(coordinator, startNanos + TimeUnit.SECONDS.toNanos(timeoutSeconds));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long transcripts = context.getBean(TranscriptRepository.class).count();
+
+        PipelineTracer tracer = context.getBean(PipelineTracer.class);
+        report.put("drained", drained);
+        report.put("elapsedMillis", elapsedMillis);
+        report.put("sweep", sweep);
+        report.put("expectedTranscripts", expectedTranscripts);
+        report.put("transcripts", transcripts);
+        report.put("transcriptsPerSecond", perSecond(transcripts, elapsedMillis));
+        report.put("stages", tracer.getStageStats());
+        report.put("slowestTraces", tracer.getSlowestTraces(10));
+        report.put("pipeline", context.getBean(PipelineMessaging.class).getStats());
+        report.put("backpressure", coordinator.getStats());
+        report.put("executors", context.getBean(ExecutorMetrics.class).getStats());
+        report.put("asrRequests", context.getBean(SpeechRecognitionService.class).getRequestConcurrencyStats());
+        report.put("decode", context.getBean(AudioConversionService.class).getDecodeStats());
+        return drained;
+    }
+
+    /**
+     * 批量写入合成博主，返回按替身脚本的规则应产生的识别结果数
+     */
+    private static int seedCreators(ConfigurableApplicationContext context, FakeScripts scripts, int creators, int maxDownloadCount) {
+        DouyinRepository douyinRepository = context.getBean(DouyinRepository.class);
+        int expected = 0;
+        List<Douyin> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < creators; i++) {
+            String url = String.format("https://www.douyin.com/user/loadtest-%06d", i);
+            expected += Math.min(scripts.newWorks(url), maxDownloadCount);
+            batch.add(new Douyin(url, "负载测试博主" + i, 0, true, FakeScripts.BASE_WORKS));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                douyinRepository.batchInsert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            douyinRepository.batchInsert(batch);
+        }
+        // 写入时不知道id，之后的分页读取回到数据库
+        context.getBean(CreatorCache.class).invalidateAll();
+        return expected;
+    }
+
+    /**
+     * 等待各阶段的在途消息全部处理完，包括等待重试的消息
+     * @return 超时前处理完返回true
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean awaitDrain(PipelineCoordinator coordinator, long deadlineNanos) throws InterruptedException {
+        while (System.nanoTime() < deadlineNanos) {
+            List<Map<String, Object>> stages = (List<Map<String, Object>>) coordinator.getStats().get("stages");
+            if (stages.stream().allMatch(stage -> ((Number) stage.get("inFlight")).intValue() == 0)) {
+                return true;
+            }
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+        System.out.println("等待流水线处理完超时: " + coordinator.getStats());
+        return false;
+    }
+
+    private static double perSecond(long count, long millis) {
+        return millis > 0 ? Math.round(count * 100000.0 / millis) / 100.0 : 0.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printSummary(Map<String, Object> report) {
+        System.out.println();
+        SweepResult sweep = (SweepResult) report.get("sweep");
+        System.out.printf("总耗时 %dms，识别结果 %s/%s，%s 条/秒，检查阶段 %.2f 个博主/秒%n",
+                report.get("elapsedMillis"), report.get("transcripts"), report.get("expectedTranscripts"),
+                report.get("transcriptsPerSecond"), sweep.getCreatorsPerSecond());
+        System.out.printf("%-16s %8s %10s %10s %10s %10s %10s%n", "stage", "count", "avg", "p50", "p95", "p99", "max");
+        Map<String, Object> stages = (Map<String, Object>) report.get("stages");
+        stages.forEach((stage, value) -> {
+            Map<String, Object> stats = (Map<String, Object>) value;
+            System.out.printf("%-16s %8s %10s %10s %10s %10s %10s%n", stage, stats.get("count"), stats.get("avgMillis"),
+                    stats.get("p50Millis"), stats.get("p95Millis"), stats.get("p99Millis"), stats.get("maxMillis"));
+        });
+        System.out.println("替身服务: " + report.get("stub"));
+    }
+}
@@ -0,0 +1,191 @@
+package com.alan.dy1.loadtest;
+
+import com.alan.dy1.util.LatencyHistogram;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地替身服务，代替百度的Token接口、短语音识别接口和抖音的音频地址
+ * /oauth/2.0/token 返回固定Token；/server_api 按设定的延迟返回识别结果，超过QPS上限或按错误率返回3304；
+ * /media/ 下的任意路径都返回同一个样本MP3
+ */
+public class StubBaiduServer {
+
+    private static final String TOKEN_RESPONSE =
+            "{\"access_token\":\"loadtest-token\",\"expires_in\":2592000,\"scope\":\"audio_voice_assistant_get\"}";
+
+    private static final String QPS_ERROR_RESPONSE =
+            "{\"err_no\":3304,\"err_msg\":\"request pv too much\",\"sn\":\"loadtest\"}";
+
+    private final byte[] media;
+    // 识别接口的平均延迟，实际在0.5到1.5倍之间均匀分布
+    private final long asrLatencyMillis;
+    // 每秒允许的识别请求数，0表示不限
+    private final int asrQps;
+    // 未超过QPS时也按此比例返回3304
+    private final double asrErrorRate;
+
+    private final AtomicLong tokenRequests = new AtomicLong();
+    private final AtomicLong asrRequests = new AtomicLong();
+    private final AtomicLong asrQpsRejected = new AtomicLong();
+    private final AtomicLong asrInjectedErrors = new AtomicLong();
+    private final AtomicLong asrRequestBytes = new AtomicLong();
+    private final AtomicLong mediaRequests = new AtomicLong();
+    private final LatencyHistogram asrLatency = new LatencyHistogram();
+
+    private long windowSecond;
+    private int windowCount;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubBaiduServer(byte[] media, long asrLatencyMillis, int asrQps, double asrErrorRate) {
+        this.media = media;
+        this.asrLatencyMillis = asrLatencyMillis;
+        this.asrQps = asrQps;
+        this.asrErrorRate = asrErrorRate;
+    }
+
+    /**
+     * 在本机随机端口上启动
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // 识别请求在处理线程上等待，线程数不设上限，并发由被测程序自己的限制决定
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-baidu");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/oauth/2.0/token", this::handleToken);
+        server.createContext("/server_api", this::handleAsr);
+        server.createContext("/media/", this::handleMedia);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String getTokenUrl() {
+        return getBaseUrl() + "/oauth/2.0/token";
+    }
+
+    public String getAsrUrl() {
+        return getBaseUrl() + "/server_api";
+    }
+
+    public String getMediaBaseUrl() {
+        return getBaseUrl() + "/media";
+    }
+
+    /**
+     * 各接口的请求数和识别接口的处理耗时
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokenRequests", tokenRequests.get());
+        stats.put("asrRequests", asrRequests.get());
+        stats.put("asrQpsRejected", asrQpsRejected.get());
+        stats.put("asrInjectedErrors", asrInjectedErrors.get());
+        stats.put("asrRequestBytes", asrRequestBytes.get());
+        stats.put("asrLatency", asrLatency.snapshot());
+        stats.put("mediaRequests", mediaRequests.get());
+        return stats;
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        tokenRequests.incrementAndGet();
+        respond(exchange, TOKEN_RESPONSE.getBytes(StandardCharsets.UTF_8), "application/json");
+    }
+
+    private void handleAsr(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        asrRequests.incrementAndGet();
+        long length = drain(exchange.getRequestBody());
+        asrRequestBytes.addAndGet(length);
+        String body;
+        if (!tryAcquireQps()) {
+            asrQpsRejected.incrementAndGet();
+            body = QPS_ERROR_RESPONSE;
+        } else if (ThreadLocalRandom.current().nextDouble() < asrErrorRate) {
+            asrInjectedErrors.incrementAndGet();
+            body = QPS_ERROR_RESPONSE;
+        } else {
+            sleep(asrLatencyMillis);
+            body = "{\"err_no\":0,\"err_msg\":\"success.\",\"sn\":\"loadtest\",\"result\":[\"负载测试识别结果，请求" + length + "字节。\"]}";
+        }
+        respond(exchange, body.getBytes(StandardCharsets.UTF_8), "application/json");
+        asrLatency.record(System.nanoTime() - startNanos);
+    }
+
+    private void handleMedia(HttpExchange exchange) throws IOException {
+        mediaRequests.incrementAndGet();
+        drain(exchange.getRequestBody());
+        respond(exchange, media, "audio/mpeg");
+    }
+
+    /**
+     * 按自然秒计数，与百度按秒统计QPS的方式相近
+     */
+    private synchronized boolean tryAcquireQps() {
+        if (asrQps <= 0) {
+            return true;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        return ++windowCount <= asrQps;
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body, String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    private static void sleep(long meanMillis) {
+        if (meanMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(meanMillis / 2, meanMillis * 3 / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
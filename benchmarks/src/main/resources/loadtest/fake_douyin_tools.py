@@ -0,0 +1,128 @@
+#!/usr/bin/env python3
+# -*- coding: utf-8 -*-
+"""
+负载测试用的替身脚本，不打开浏览器也不访问抖音
+同一份脚本复制为 get_works_count_from_url.py 和 get_audio_from_url.py，按文件名决定行为；
+延迟、失败率和新作品分布读取同目录下的 fake_scripts.json，由负载测试程序生成
+命令行参数和worker协议与真实脚本一致
+"""
+
+import argparse
+import json
+import os
+import random
+import shutil
+import sys
+import time
+import urllib.request
+import zlib
+
+SCRIPT_DIR = os.path.dirname(os.path.abspath(__file__))
+ROLE = "count" if "works_count" in os.path.basename(__file__) else "audio"
+
+with open(os.path.join(SCRIPT_DIR, "fake_scripts.json"), encoding="utf-8") as config_file:
+    CONFIG = json.load(config_file)
+
+
+def url_hash(url):
+    """与负载测试程序中的计算一致，用于统计应产生的识别结果数"""
+    return zlib.crc32(url.encode("utf-8")) & 0xFFFFFFFF
+
+
+def new_works(url):
+    h = url_hash(url)
+    if h % 10000 >= CONFIG["new_works_ratio"] * 10000:
+        return 0
+    return 1 + (h // 10000) % CONFIG["max_new_works"]
+
+
+def simulate(role):
+    """按配置的平均延迟等待（在0.5到1.5倍之间均匀分布），并按失败率抛出异常"""
+    settings = CONFIG[role]
+    latency = settings["latency_ms"] / 1000.0
+    if latency > 0:
+        time.sleep(random.uniform(0.5 * latency, 1.5 * latency))
+    if random.random() < settings["failure_rate"]:
+        raise Exception("模拟的脚本失败")
+
+
+def works_count(url):
+    simulate("count")
+    number = CONFIG["base_works"] + new_works(url)
+    return {
+        "success": True,
+        "number": str(number),
+        "message": f"用户页面 {url} 的作品数量: {number}",
+        "url": url
+    }
+
+
+def audio(url, count, resolve):
+    simulate("audio")
+    h = url_hash(url)
+    results = []
+    for i in range(count):
+        name = f"loadtest_{h}_{i}"
+        media_url = f"{CONFIG['media_base_url']}/{h}-{i}.mp3"
+        video_url = f"https://www.douyin.com/video/{h}{i:04d}"
+        if resolve:
+            results.append({"success": True, "media_url": media_url, "name": name, "headers": {},
+                            "video_url": video_url})
+            continue
+        os.makedirs(CONFIG["audio_dir"], exist_ok=True)
+        file_path = os.path.join(CONFIG["audio_dir"], name + ".mp3")
+        with urllib.request.urlopen(media_url) as response, open(file_path, "wb") as out:
+            shutil.copyfileobj(response, out)
+        results.append({"success": True, "file_path": file_path, "message": f"音频已保存到: {file_path}",
+                        "video_url": video_url})
+    return {"success": True, "results": results}
+
+
+def handle(request):
+    url = request.get("url")
+    try:
+        if ROLE == "count":
+            return works_count(url)
+        return audio(url, int(request.get("count") or 1), bool(request.get("resolve")))
+    except Exception as e:
+        return {"success": False, "error": str(e), "url": url}
+
+
+def run_worker():
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request = json.loads(line)
+        if request.get("cmd") == "ping":
+            result = {"success": True, "pong": True}
+        else:
+            result = handle(request)
+        result["id"] = request.get("id")
+        sys.stdout.write(json.dumps(result, ensure_ascii=False) + "\n")
+        sys.stdout.flush()
+
+
+def main():
+    parser = argparse.ArgumentParser(description="负载测试用的替身脚本")
+    parser.add_argument("-u", "--url")
+    parser.add_argument("-j", "--json", action="store_true")
+    parser.add_argument("-c", "--count", type=int, default=1)
+    parser.add_argument("-w", "--worker", action="store_true")
+    parser.add_argument("-r", "--resolve", action="store_true")
+    args = parser.parse_args()
+
+    if args.worker:
+        run_worker()
+        return
+    result = handle({"url": args.url, "count": args.count, "resolve": args.resolve})
+    success = result.get("success")
+    if ROLE == "audio" and success:
+        # 一次性调用时下载脚本输出结果数组
+        result = result["results"]
+    print(json.dumps(result, ensure_ascii=False))
+    sys.exit(0 if success else 1)
+
+
+if __name__ == "__main__":
+    main()
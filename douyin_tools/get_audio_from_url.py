@@ -4,6 +4,7 @@
 抖音视频音频下载脚本
 """
 import argparse
+import itertools
 import json
 import os
 import re
@@ -45,27 +46,12 @@ def check_network_connectivity(debug=True):
             print(f"网络连接检查失败: {e}")
         return False
 
-def download_audio_from_url(url, output_dir="audio", filename=None, debug=True):
+def create_driver(debug=True):
     """
-    使用Selenium从抖音视频URL下载音频
-    :param url: 视频页面URL
-    :param output_dir: 音频输出目录
-    :param filename: 音频文件名（不含扩展名）
+    创建Edge浏览器实例
     :param debug: 是否输出调试信息
-    :return: 音频文件路径
+    :return: WebDriver实例
     """
-    # 首先检查网络连接
-    if debug:
-        print("检查网络连接...")
-    if not check_network_connectivity(debug):
-        raise Exception("无法连接到网络，请检查网络连接")
-    
-    # 确保输出目录存在
-    if not os.path.exists(output_dir):
-        os.makedirs(output_dir)
-        if debug:
-            print(f"创建输出目录: {output_dir}")
-    
     try:
         # 使用本地EdgeDriver
         if debug:
@@ -102,6 +88,7 @@ def download_audio_from_url(url, output_dir="audio", filename=None, debug=True):
         driver = webdriver.Edge(service=service, options=edge_options)
         if debug:
             print("Edge浏览器启动成功")
+        return driver
     except WebDriverException as e:
         if debug:
             print(f"浏览器启动失败: {e}")
@@ -111,6 +98,65 @@ def download_audio_from_url(url, output_dir="audio", filename=None, debug=True):
             print(f"创建WebDriver时发生未知错误: {e}")
         raise
 
+def quit_driver(driver, debug=True):
+    """关闭浏览器"""
+    if driver is None:
+        return
+    try:
+        driver.quit()
+        if debug:
+            print("浏览器已关闭")
+    except Exception as e:
+        if debug:
+            print(f"关闭浏览器时出错: {e}")
+
+# 下载音频时使用的请求头，只解析地址时一并返回给调用方
+DOWNLOAD_HEADERS = {
+    'User-Agent': 'Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36',
+    'Referer': 'https://www.douyin.com/'
+}
+
+# 流式模式下生成文件名的计数器，同一秒内解析多个作品时区分文件名
+_resolve_counter = itertools.count(1)
+
+def resolve_name(filename, video_url):
+    """
+    流式模式下的文件名，不落盘所以无法像下载时那样检查文件是否已存在
+    同一博主的作品标题往往相同，优先用作品id区分；取不到作品id时用时间戳加进程号和计数器
+    """
+    match = re.search(r'/video/(\d+)', video_url)
+    if match:
+        return f"{filename}_{match.group(1)}"
+    return f"{filename}_{int(time.time())}_{os.getpid()}_{next(_resolve_counter)}"
+
+def download_audio_from_url(url, output_dir="audio", filename=None, debug=True, driver=None, resolve_only=False):
+    """
+    使用Selenium从抖音视频URL下载音频
+    :param url: 视频页面URL
+    :param output_dir: 音频输出目录
+    :param filename: 音频文件名（不含扩展名）
+    :param debug: 是否输出调试信息
+    :param driver: 复用的浏览器实例，为空时新建并在结束后关闭
+    :param resolve_only: 只解析音频地址不下载，由调用方直接流式读取
+    :return: 音频文件路径；resolve_only时返回 (音频地址, 不含扩展名的文件名)
+    """
+    own_driver = driver is None
+    if own_driver:
+        # 首先检查网络连接
+        if debug:
+            print("检查网络连接...")
+        if not check_network_connectivity(debug):
+            raise Exception("无法连接到网络，请检查网络连接")
+    
+    # 确保输出目录存在
+    if not resolve_only and not os.path.exists(output_dir):
+        os.makedirs(output_dir)
+        if debug:
+            print(f"创建输出目录: {output_dir}")
+    
+    if own_driver:
+        driver = create_driver(debug)
+
     try:
         # 打开页面
         if debug:
@@ -176,10 +222,13 @@ def download_audio_from_url(url, output_dir="audio", filename=None, debug=True):
                 filename = re.sub(r'[<>:"/\\|?*\x00-\x1F]', '_', title_match.group(1))[:50]
             else:
                 filename = "douyin_audio_" + str(int(time.time()))
-        else:
+        elif not resolve_only:
             # 如果提供了文件名，也添加时间戳确保唯一性
             filename = filename + "_" + str(int(time.time()))
                 
+        if resolve_only:
+            return audio_url, resolve_name(filename, url)
+                
         # 确定文件扩展名
         if audio_url.endswith('.mp3'):
             extension = '.mp3'
@@ -210,12 +259,7 @@ def download_audio_from_url(url, output_dir="audio", filename=None, debug=True):
         if debug:
             print(f"正在下载音频到: {file_path}")
             
-        headers = {
-            'User-Agent': 'Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36',
-            'Referer': 'https://www.douyin.com/'
-        }
-        
-        response = requests.get(audio_url, headers=headers, stream=True)
+        response = requests.get(audio_url, headers=DOWNLOAD_HEADERS, stream=True)
         response.raise_for_status()
         
         with open(file_path, 'wb') as f:
@@ -241,47 +285,28 @@ def download_audio_from_url(url, output_dir="audio", filename=None, debug=True):
                 print(f"获取页面信息失败: {e2}")
         raise
     finally:
-        # 关闭浏览器
-        try:
-            driver.quit()
-            if debug:
-                print("浏览器已关闭")
-        except Exception as e:
-            if debug:
-                print(f"关闭浏览器时出错: {e}")
+        # 仅关闭本次调用创建的浏览器，复用的浏览器由调用方负责
+        if own_driver:
+            quit_driver(driver, debug)
 
-def find_video_url(url, works_count_diff):
+def find_video_url(url, works_count_diff, driver=None):
     """
     根据URL和作品数量差查找视频URL
     :param url: 抖音用户或作品页面URL
     :param works_count_diff: 作品数量差
+    :param driver: 复用的浏览器实例，为空时新建并在结束后关闭
     :return: 视频URL列表
     """
-    # 首先检查网络连接
-    if not check_network_connectivity():
-        raise Exception("无法连接到网络，请检查网络连接")
+    own_driver = driver is None
+    if own_driver:
+        # 首先检查网络连接
+        if not check_network_connectivity():
+            raise Exception("无法连接到网络，请检查网络连接")
     
     # 使用Selenium获取页面内容
     try:
-        # 使用本地EdgeDriver
-        edge_driver_paths = [
-            os.path.join(os.path.dirname(__file__), "msedgedriver", "msedgedriver.exe"),
-            os.path.join(os.path.dirname(__file__), "msedgedriver-win64", "msedgedriver.exe")
-        ]
-        
-        edge_driver_path = None
-        for path in edge_driver_paths:
-            if os.path.exists(path):
-                edge_driver_path = path
-                break
-                
-        if edge_driver_path is None:
-            raise Exception("未找到EdgeDriver，请确保msedgedriver.exe存在于msedgedriver或msedgedriver-win64目录中")
-            
-        service = Service(edge_driver_path)
-        
-        # 启动Edge浏览器
-        driver = webdriver.Edge(service=service, options=edge_options)
+        if own_driver:
+            driver = create_driver(False)
         
         # 打开页面
         driver.get(url)
@@ -312,22 +337,115 @@ def find_video_url(url, works_count_diff):
         print(f"查找视频URL时出错: {e}")
         return []
     finally:
-        # 关闭浏览器
-        try:
-            driver.quit()
-        except Exception as e:
-            print(f"关闭浏览器时出错: {e}")
+        # 仅关闭本次调用创建的浏览器
+        if own_driver:
+            quit_driver(driver, False)
+
+def audio_result(video_url, output_dir, filename, debug, driver, resolve_only):
+    """
+    处理单个作品并生成结果
+    resolve_only时只返回音频地址media_url和请求头，不写磁盘
+    """
+    if resolve_only:
+        media_url, name = download_audio_from_url(video_url, output_dir, filename, debug, driver, True)
+        return {
+            "success": True,
+            "media_url": media_url,
+            "name": name,
+            "headers": DOWNLOAD_HEADERS,
+            "video_url": video_url
+        }
+    file_path = download_audio_from_url(video_url, output_dir, filename, debug, driver)
+    return {
+        "success": True,
+        "file_path": file_path,
+        "message": f"音频已保存到: {file_path}",
+        "video_url": video_url
+    }
+
+def write_response(stream, result):
+    """向协议通道写出一行JSON响应"""
+    stream.write(json.dumps(result, ensure_ascii=False) + "\n")
+    stream.flush()
+
+def run_worker(output_dir):
+    """
+    常驻worker模式：从stdin逐行读取JSON请求，向stdout逐行写出JSON响应
+    请求示例: {"id": 1, "url": "...", "count": 1}，加上 "resolve": true 时只返回音频地址
+    健康检查: {"id": 2, "cmd": "ping"}
+    浏览器在多次请求间复用，出错后下次请求重新创建
+    """
+    protocol_out = sys.stdout
+    # 其余print输出全部转到stderr，避免污染协议通道
+    sys.stdout = sys.stderr
+    driver = None
+    try:
+        for line in sys.stdin:
+            line = line.strip()
+            if not line:
+                continue
+            try:
+                request = json.loads(line)
+            except ValueError as e:
+                write_response(protocol_out, {"id": None, "success": False, "error": f"无效请求: {e}"})
+                continue
+
+            request_id = request.get("id")
+            if request.get("cmd") == "ping":
+                write_response(protocol_out, {"id": request_id, "success": True, "pong": True})
+                continue
+
+            url = request.get("url")
+            count = int(request.get("count") or 1)
+            target_dir = request.get("output") or output_dir
+            try:
+                if driver is None:
+                    if not check_network_connectivity(False):
+                        raise Exception("无法连接到网络，请检查网络连接")
+                    driver = create_driver(False)
+                video_urls = find_video_url(url, count, driver)
+                if not video_urls:
+                    raise Exception("未找到任何视频")
+                results = []
+                for video_url in video_urls:
+                    try:
+                        results.append(audio_result(video_url, target_dir, request.get("name"), False, driver,
+                                                    bool(request.get("resolve"))))
+                    except Exception as e:
+                        results.append({
+                            "success": False,
+                            "error": str(e),
+                            "video_url": video_url
+                        })
+                result = {"success": any(r["success"] for r in results), "results": results}
+            except Exception as e:
+                result = {"success": False, "error": str(e)}
+                # 浏览器可能已失效，下次请求重新创建
+                quit_driver(driver, False)
+                driver = None
+            result["id"] = request_id
+            write_response(protocol_out, result)
+    finally:
+        quit_driver(driver, False)
 
 def main():
     parser = argparse.ArgumentParser(description='从抖音用户主页下载最新作品的音频')
-    parser.add_argument('-u', '--url', required=True, help='抖音用户主页URL')
+    parser.add_argument('-u', '--url', help='抖音用户主页URL')
     parser.add_argument('-o', '--output', default='audio', help='音频输出目录 (默认: audio)')
     parser.add_argument('-n', '--name', help='音频文件名（不含扩展名）')
     parser.add_argument('-j', '--json', action='store_true', help='以JSON格式输出结果')
     parser.add_argument('-c', '--count', type=int, default=1, help='要下载的作品数量 (默认: 1)')
+    parser.add_argument('-w', '--worker', action='store_true', help='常驻worker模式，通过stdin/stdout按行交换JSON')
+    parser.add_argument('-r', '--resolve', action='store_true', help='只解析音频地址不下载，配合-j输出media_url')
     
     args = parser.parse_args()
 
+    if args.worker:
+        run_worker(args.output)
+        return
+    if not args.url:
+        parser.error("非worker模式下必须提供 -u/--url")
+
     try:
         # 当使用-j参数时，不输出调试信息
         debug = not args.json
@@ -349,19 +467,12 @@ def main():
         results = []
         for i, url in enumerate(video_urls):
             try:
-                file_path = download_audio_from_url(url, args.output, args.name, debug)
-                message = f"音频已保存到: {file_path}"
+                result = audio_result(url, args.output, args.name, debug, None, args.resolve)
                 
                 if args.json:
-                    result = {
-                        "success": True,
-                        "file_path": file_path,
-                        "message": message,
-                        "video_url": url
-                    }
                     results.append(result)
                 else:
-                    print(message)
+                    print(result.get("message") or f"音频地址: {result['media_url']}")
             except Exception as e:
                 if args.json:
                     result = {
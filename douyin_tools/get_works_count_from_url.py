@@ -45,19 +45,12 @@ def check_network_connectivity(debug=True):
             print(f"网络连接检查失败: {e}")
         return False
 
-def get_user_works_count_from_url(url, debug=True):
+def create_driver(debug=True):
     """
-    使用Selenium从URL获取用户作品数量
-    :param url: 用户页面URL
+    创建Edge浏览器实例
     :param debug: 是否输出调试信息
-    :return: 作品数量
+    :return: WebDriver实例
     """
-    # 首先检查网络连接
-    if debug:
-        print("检查网络连接...")
-    if not check_network_connectivity(debug):
-        raise Exception("无法连接到网络，请检查网络连接")
-    
     try:
         # 使用本地EdgeDriver
         if debug:
@@ -94,6 +87,7 @@ def get_user_works_count_from_url(url, debug=True):
         driver = webdriver.Edge(service=service, options=edge_options)
         if debug:
             print("Edge浏览器启动成功")
+        return driver
     except WebDriverException as e:
         if debug:
             print(f"浏览器启动失败: {e}")
@@ -103,6 +97,35 @@ def get_user_works_count_from_url(url, debug=True):
             print(f"创建WebDriver时发生未知错误: {e}")
         raise
 
+def quit_driver(driver, debug=True):
+    """关闭浏览器"""
+    if driver is None:
+        return
+    try:
+        driver.quit()
+        if debug:
+            print("浏览器已关闭")
+    except Exception as e:
+        if debug:
+            print(f"关闭浏览器时出错: {e}")
+
+def get_user_works_count_from_url(url, debug=True, driver=None):
+    """
+    使用Selenium从URL获取用户作品数量
+    :param url: 用户页面URL
+    :param debug: 是否输出调试信息
+    :param driver: 复用的浏览器实例，为空时新建并在结束后关闭
+    :return: 作品数量
+    """
+    own_driver = driver is None
+    if own_driver:
+        # 首先检查网络连接
+        if debug:
+            print("检查网络连接...")
+        if not check_network_connectivity(debug):
+            raise Exception("无法连接到网络，请检查网络连接")
+        driver = create_driver(debug)
+
     try:
         # 打开页面
         if debug:
@@ -155,23 +178,85 @@ def get_user_works_count_from_url(url, debug=True):
                     print(f"获取页面信息失败: {e3}")
             raise
     finally:
-        # 关闭浏览器
-        try:
-            driver.quit()
-            if debug:
-                print("浏览器已关闭")
-        except Exception as e:
-            if debug:
-                print(f"关闭浏览器时出错: {e}")
+        # 仅关闭本次调用创建的浏览器，复用的浏览器由调用方负责
+        if own_driver:
+            quit_driver(driver, debug)
+
+
+def write_response(stream, result):
+    """向协议通道写出一行JSON响应"""
+    stream.write(json.dumps(result, ensure_ascii=False) + "\n")
+    stream.flush()
+
+
+def run_worker():
+    """
+    常驻worker模式：从stdin逐行读取JSON请求，向stdout逐行写出JSON响应
+    请求示例: {"id": 1, "url": "..."}，健康检查: {"id": 2, "cmd": "ping"}
+    浏览器在多次请求间复用，出错后下次请求重新创建
+    """
+    protocol_out = sys.stdout
+    # 其余print输出全部转到stderr，避免污染协议通道
+    sys.stdout = sys.stderr
+    driver = None
+    try:
+        for line in sys.stdin:
+            line = line.strip()
+            if not line:
+                continue
+            try:
+                request = json.loads(line)
+            except ValueError as e:
+                write_response(protocol_out, {"id": None, "success": False, "error": f"无效请求: {e}"})
+                continue
+
+            request_id = request.get("id")
+            if request.get("cmd") == "ping":
+                write_response(protocol_out, {"id": request_id, "success": True, "pong": True})
+                continue
+
+            url = request.get("url")
+            try:
+                if driver is None:
+                    if not check_network_connectivity(False):
+                        raise Exception("无法连接到网络，请检查网络连接")
+                    driver = create_driver(False)
+                works_count = get_user_works_count_from_url(url, False, driver)
+                result = {
+                    "success": True,
+                    "number": works_count,
+                    "message": f"用户页面 {url} 的作品数量: {works_count}",
+                    "url": url
+                }
+            except Exception as e:
+                result = {
+                    "success": False,
+                    "error": str(e),
+                    "url": url
+                }
+                # 浏览器可能已失效，下次请求重新创建
+                quit_driver(driver, False)
+                driver = None
+            result["id"] = request_id
+            write_response(protocol_out, result)
+    finally:
+        quit_driver(driver, False)
 
 
 def main():
     parser = argparse.ArgumentParser(description='使用Selenium从URL获取抖音用户作品数量')
-    parser.add_argument('-u', '--url', required=True, help='抖音用户页面URL, 例如: https://www.douyin.com/user/MS4wLjABAAAAhdP7RzxbZIlM-8R1EUX4QGb5brkOPJEsNSfE6mnKQlg?from_tab_name=main&vid=7571812136054934963')
+    parser.add_argument('-u', '--url', help='抖音用户页面URL, 例如: https://www.douyin.com/user/MS4wLjABAAAAhdP7RzxbZIlM-8R1EUX4QGb5brkOPJEsNSfE6mnKQlg?from_tab_name=main&vid=7571812136054934963')
     parser.add_argument('-j', '--json', action='store_true', help='以JSON格式输出结果')
+    parser.add_argument('-w', '--worker', action='store_true', help='常驻worker模式，通过stdin/stdout按行交换JSON')
     
     args = parser.parse_args()
 
+    if args.worker:
+        run_worker()
+        return
+    if not args.url:
+        parser.error("非worker模式下必须提供 -u/--url")
+
     try:
         # 当使用-j参数时，不输出调试信息
         debug = not args.json
@@ -0,0 +1,25 @@
+package com.alan.dy1.Config;
+
+import com.alan.dy1.util.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 博主检查的速率配置
+ * 自适应调度和全量检查共用同一个限流器，两者同时运行时合计的检查速率也不超过上限
+ */
+@Configuration
+public class CreatorCheckConfig {
+
+    //每分钟最多检查的博主数量，必须大于0
+    @Value("${douyin.scheduler.checks-per-minute:30}")
+    private int checksPerMinute;
+
+    @Bean("creatorCheckBudget")
+    public RateLimiter creatorCheckBudget() {
+        return new RateLimiter(checksPerMinute, 1, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,142 @@
+package com.alan.dy1.Config;
+
+import com.alan.dy1.util.LatencyHistogram;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各执行器的运行统计
+ * 通过TaskDecorator在提交时记下时间，任务开始时记录排队等待时长，结束时记录执行时长；
+ * 线程池饱和时由包装后的拒绝策略计数，再交给配置的策略处理；submitted只统计被接受、会执行的任务，
+ * 被abort拒绝或被discard类策略丢弃的任务从中扣除，丢弃的任务另计discarded
+ */
+public class ExecutorMetrics {
+
+    private final Map<String, Instrumentation> executors = new ConcurrentHashMap<>();
+
+    /**
+     * 为一个执行器创建统计
+     * @param name 执行器名称
+     */
+    Instrumentation instrument(String name) {
+        return executors.computeIfAbsent(name, Instrumentation::new);
+    }
+
+    /**
+     * 所有执行器的统计，按名称排序
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        executors.forEach((name, instrumentation) -> stats.put(name, instrumentation.snapshot()));
+        return stats;
+    }
+
+    /**
+     * 单个执行器的统计，同时作为它的TaskDecorator
+     */
+    static class Instrumentation implements TaskDecorator {
+
+        private final String name;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder running = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder discarded = new LongAdder();
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram execution = new LatencyHistogram();
+        private volatile Executor executor;
+        private volatile String rejectionPolicy;
+
+        Instrumentation(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Runnable decorate(Runnable runnable) {
+            submitted.increment();
+            long submittedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt);
+                running.increment();
+                try {
+                    runnable.run();
+                    completed.increment();
+                } catch (RuntimeException | Error e) {
+                    failed.increment();
+                    throw e;
+                } finally {
+                    running.decrement();
+                    execution.record(System.nanoTime() - startedAt);
+                }
+            };
+        }
+
+        /**
+         * 包装拒绝策略，先计数再交给原策略
+         * caller-runs由提交线程执行，仍算提交；abort和discard时被拒绝的任务不执行，discard-oldest时队列中最早的任务被丢弃，
+         * 这三种情况都有一个已计入submitted的任务不会执行
+         */
+        RejectedExecutionHandler countingRejections(String policyName, RejectedExecutionHandler delegate) {
+            this.rejectionPolicy = policyName;
+            boolean callerRuns = "caller-runs".equals(policyName);
+            boolean discards = policyName.startsWith("discard");
+            return (runnable, pool) -> {
+                rejected.increment();
+                if (!callerRuns) {
+                    submitted.decrement();
+                }
+                if (discards) {
+                    discarded.increment();
+                }
+                delegate.rejectedExecution(runnable, pool);
+            };
+        }
+
+        void bind(Executor executor) {
+            this.executor = executor;
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", name);
+            if (executor instanceof ThreadPoolTaskExecutor pool) {
+                ThreadPoolExecutor threadPool = pool.getThreadPoolExecutor();
+                stats.put("type", "pool");
+                stats.put("corePoolSize", threadPool.getCorePoolSize());
+                stats.put("maxPoolSize", threadPool.getMaximumPoolSize());
+                stats.put("poolSize", threadPool.getPoolSize());
+                stats.put("largestPoolSize", threadPool.getLargestPoolSize());
+                stats.put("activeThreads", threadPool.getActiveCount());
+                stats.put("queueDepth", threadPool.getQueue().size());
+                stats.put("queueRemainingCapacity", threadPool.getQueue().remainingCapacity());
+                stats.put("rejectionPolicy", rejectionPolicy);
+            } else {
+                // 虚拟线程执行器没有池和队列，活跃数即正在执行的任务数
+                stats.put("type", "virtual");
+                stats.put("activeThreads", running.sum());
+            }
+            stats.put("submitted", submitted.sum());
+            stats.put("running", running.sum());
+            stats.put("completed", completed.sum());
+            stats.put("failed", failed.sum());
+            stats.put("rejected", rejected.sum());
+            stats.put("discarded", discarded.sum());
+            // 分位数取分桶上界，比实际值最多高12.5%
+            stats.put("percentileError", "+12.5%");
+            stats.put("queueWait", queueWait.snapshot());
+            stats.put("execution", execution.snapshot());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.alan.dy1.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate批处理配置
+ * 让同一事务内的多条更新合并成JDBC批处理发送
+ */
+@Configuration
+public class JpaBatchConfig {
+
+    @Value("${douyin.write.batch-size:500}")
+    private int batchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer batchPropertiesCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.alan.dy1.Config;
+
+import com.alan.dy1.worker.PythonWorkerPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * 常驻Python worker池配置
+ */
+@Configuration
+public class PythonWorkerPoolConfig {
+
+    @Value("${python.command:python}")
+    private String pythonCommand;
+
+    //脚本所在目录，相对于工作目录
+    @Value("${python.script-dir:douyin_tools}")
+    private String scriptDir;
+
+    @Value("${python.worker.pool-size:2}")
+    private int poolSize;
+
+    @Value("${python.worker.max-requests:50}")
+    private int maxRequestsPerWorker;
+
+    @Value("${python.worker.request-timeout-ms:120000}")
+    private long requestTimeoutMillis;
+
+    @Value("${python.worker.health-check-timeout-ms:10000}")
+    private long healthCheckTimeoutMillis;
+
+    //查询作品数量worker池
+    @Bean(name = "workCountWorkerPool", destroyMethod = "shutdown")
+    public PythonWorkerPool workCountWorkerPool() {
+        return new PythonWorkerPool("workCount", pythonCommand, scriptDir + "/get_works_count_from_url.py",
+                List.of(), poolSize, maxRequestsPerWorker, requestTimeoutMillis, healthCheckTimeoutMillis);
+    }
+
+    //下载音频worker池
+    @Bean(name = "audioWorkerPool", destroyMethod = "shutdown")
+    public PythonWorkerPool audioWorkerPool() {
+        return new PythonWorkerPool("audio", pythonCommand, scriptDir + "/get_audio_from_url.py",
+                List.of(), poolSize, maxRequestsPerWorker, requestTimeoutMillis, healthCheckTimeoutMillis);
+    }
+
+    //定时检查空闲worker是否存活
+    @Scheduled(fixedDelayString = "${python.worker.health-check-interval-ms:60000}")
+    public void checkWorkerHealth() {
+        workCountWorkerPool().healthCheck();
+        audioWorkerPool().healthCheck();
+    }
+}
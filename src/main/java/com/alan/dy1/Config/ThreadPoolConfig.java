@@ -1,54 +1,128 @@
 package com.alan.dy1.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 @Configuration
 public class ThreadPoolConfig {
-    //查询作品数量专属线程池
+    private static final Logger logger = LoggerFactory.getLogger(ThreadPoolConfig.class);
+
+    //任务被接受后提交方会一直等它完成的线程池可用的饱和策略
+    private static final Set<String> GUARANTEED_POLICIES = Set.of("caller-runs", "abort");
+
+    //各线程池的任务队列长度，队列满后先扩到最大线程数，仍然满时按饱和策略处理
+    //单个线程池可用 executor.<名称>.queue-capacity 覆盖
+    @Value("${executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    //饱和策略：caller-runs（提交任务的线程自己执行，提交方随之放慢）、abort、discard、discard-oldest
+    //单个线程池可用 executor.<名称>.rejection-policy 覆盖；getWorkCount、downloadAudio的提交方依赖任务一定执行，
+    //只能用caller-runs或abort（提交方捕获拒绝并按失败处理），配置为discard类策略时启动失败
+    @Value("${executor.rejection-policy:caller-runs}")
+    private String rejectionPolicy;
+
+    //使用虚拟线程时每个任务一个虚拟线程，不再有线程数上限，并发由各下游资源的限制控制
+    //（worker池大小、process.max-concurrent、baidu.asr.max-concurrent-requests、audio.ffmpeg.max-concurrent）
+    //需要Java 21运行时，低版本自动退回线程池
+    @Value("${executor.virtual-threads:${spring.threads.virtual.enabled:false}}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private Environment environment;
+
+    private final ExecutorMetrics executorMetrics = new ExecutorMetrics();
+
+    //各执行器的队列深度、线程数、拒绝次数和任务耗时统计
+    @Bean
+    public ExecutorMetrics executorMetrics() {
+        return executorMetrics;
+    }
+
+    //查询作品数量专属线程池，全量检查和调度器等待每个检查完成
     @Bean("getWorkCountExecutor")
     public Executor getWorkCountExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(6);
-        executor.setMaxPoolSize(10);
-        executor.setThreadNamePrefix("getWorkCount");
-        executor.initialize();
-        return executor;
+        return newExecutor("getWorkCount", 6, 10, true);
     }
 
-    //下载音频并转换为WAV专属线程池
+    //下载音频并转换为WAV专属线程池，批量转换任务等待每个文件完成，RabbitMQ模式下的下载消费者也运行在这里
     @Bean("downloadAudioExecutor")
     public Executor downloadAudioExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(8);
-        executor.setThreadNamePrefix("downloadAudio");
-        executor.initialize();
-        return executor;
+        return newExecutor("downloadAudio", 4, 8, true);
     }
 
-    //百度api转文字专属线程池
+    //百度api转文字专属线程池，分段识别时没被执行的段由调用线程自己识别，可以丢弃
     @Bean("baiduApiExecutor")
     public Executor baiduApiExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(6);
-        executor.setMaxPoolSize(10);
-        executor.setThreadNamePrefix("baiduApi");
-        executor.initialize();
-        return executor;
+        return newExecutor("baiduApi", 6, 10, false);
     }
 
     //大模型文字提取关键词+选股专属线程池
     @Bean("textExtractAndBuyExecutor")
     public Executor textExtractExecutor() {
+        return newExecutor("textExtract", 4, 8, false);
+    }
+
+    /**
+     * 创建执行器并接入统计
+     * 核心/最大线程数可用 executor.<名称>.core-size、executor.<名称>.max-size 覆盖
+     * @param guaranteedExecution 提交方是否依赖被接受的任务一定执行，是时不允许discard类饱和策略
+     */
+    private Executor newExecutor(String threadNamePrefix, int corePoolSize, int maxPoolSize, boolean guaranteedExecution) {
+        ExecutorMetrics.Instrumentation instrumentation = executorMetrics.instrument(threadNamePrefix);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            try {
+                executor.setVirtualThreads(true);
+                executor.setTaskDecorator(instrumentation);
+                instrumentation.bind(executor);
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                logger.warn("当前Java版本 {} 不支持虚拟线程，{} 使用线程池", Runtime.version().feature(), threadNamePrefix);
+            }
+        }
+        String policy = property(threadNamePrefix, "rejection-policy", String.class, rejectionPolicy);
+        if (guaranteedExecution && !GUARANTEED_POLICIES.contains(policy)) {
+            throw new IllegalStateException("线程池 " + threadNamePrefix + " 的提交方依赖任务一定执行，饱和策略只能是caller-runs或abort，当前为 "
+                    + policy + "，可用 executor." + threadNamePrefix + ".rejection-policy 单独设置");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(8);
-        executor.setThreadNamePrefix("textExtract");
+        executor.setCorePoolSize(property(threadNamePrefix, "core-size", Integer.class, corePoolSize));
+        executor.setMaxPoolSize(property(threadNamePrefix, "max-size", Integer.class, maxPoolSize));
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setQueueCapacity(property(threadNamePrefix, "queue-capacity", Integer.class, queueCapacity));
+        executor.setRejectedExecutionHandler(instrumentation.countingRejections(policy, rejectionHandler(policy)));
+        executor.setTaskDecorator(instrumentation);
         executor.initialize();
+        instrumentation.bind(executor);
         return executor;
     }
 
+    private <T> T property(String executorName, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty("executor." + executorName + "." + key, type, defaultValue);
+    }
 
+    private static RejectedExecutionHandler rejectionHandler(String policy) {
+        switch (policy) {
+            case "caller-runs":
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case "abort":
+                return new ThreadPoolExecutor.AbortPolicy();
+            case "discard":
+                return new ThreadPoolExecutor.DiscardPolicy();
+            case "discard-oldest":
+                return new ThreadPoolExecutor.DiscardOldestPolicy();
+            default:
+                throw new IllegalArgumentException("未知的线程池饱和策略: " + policy);
+        }
+    }
 
 }
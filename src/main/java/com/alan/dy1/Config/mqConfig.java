@@ -1,23 +1,195 @@
 package com.alan.dy1.Config;
 
+import com.alan.dy1.mq.InMemoryPipelineMessaging;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+//队列、交换机和监听容器只在RabbitMQ模式下创建，进程内模式见InMemoryPipelineMessaging
 @Configuration
+@Profile("!" + InMemoryPipelineMessaging.PROFILE)
 public class mqConfig {
+    private static final Logger logger = LoggerFactory.getLogger(mqConfig.class);
+
+    // 队列1、2的消息体为PipelineMessageCodec编码的NewWorksMessage、AudioReadyMessage，队列3为识别文字
     // 队列1：获取作品数量任务结果 → 下载音频任务
     public static final String QUEUE_NEW_TO_DownloadAndChange = "queue.new.to.downloadAndChange";
     // 队列2：音频任务结果 → baiduApi
     public static final String QUEUE_DownloadAndChange_TO_BaiduApi = "queue.downloadAndChange.to.baiduApi";
+    // 队列3：识别结果 → 文字提取关键词
+    public static final String QUEUE_BaiduApi_TO_TextExtract = "queue.baiduApi.to.textExtract";
+
+    // 死信交换机，重试次数用完的消息按原队列名路由到 <队列名>.dlq
+    public static final String DEAD_LETTER_EXCHANGE = "pipeline.dlx";
+    public static final String DEAD_LETTER_SUFFIX = ".dlq";
+
+    private static final String[] STAGE_QUEUES = {
+            QUEUE_NEW_TO_DownloadAndChange, QUEUE_DownloadAndChange_TO_BaiduApi, QUEUE_BaiduApi_TO_TextExtract
+    };
+
+    // 下载转换阶段的消费者数量，消费者长期占用downloadAudioExecutor的线程，需给批量转换任务留出线程
+    @Value("${pipeline.download.concurrency:2}")
+    private int downloadConcurrency;
+
+    @Value("${pipeline.download.max-concurrency:3}")
+    private int downloadMaxConcurrency;
+
+    @Value("${pipeline.download.prefetch:1}")
+    private int downloadPrefetch;
+
+    // 语音识别阶段的消费者数量
+    @Value("${pipeline.asr.concurrency:4}")
+    private int asrConcurrency;
+
+    @Value("${pipeline.asr.max-concurrency:4}")
+    private int asrMaxConcurrency;
+
+    // 每个消费者预取的消息数，识别耗时长，预取多了会让消息积压在个别消费者上
+    @Value("${pipeline.asr.prefetch:1}")
+    private int asrPrefetch;
 
+    // 失败消息的重试次数，第n次重试前等待 initial-delay-ms * multiplier^(n-1)
+    @Value("${pipeline.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${pipeline.retry.initial-delay-ms:5000}")
+    private long retryInitialDelayMillis;
+
+    @Value("${pipeline.retry.multiplier:4.0}")
+    private double retryMultiplier;
+
+    /**
+     * 第attempt次重试使用的延迟队列名
+     */
+    public static String retryQueueName(String queue, int attempt) {
+        return queue + ".retry." + attempt;
+    }
+
+    //业务队列持久化，被拒绝的消息转入死信交换机
     @Bean
     public Queue queueA() {
-        return new Queue(QUEUE_NEW_TO_DownloadAndChange);
+        return stageQueue(QUEUE_NEW_TO_DownloadAndChange);
     }
 
     @Bean
     public Queue queueB() {
-        return new Queue(QUEUE_DownloadAndChange_TO_BaiduApi);
+        return stageQueue(QUEUE_DownloadAndChange_TO_BaiduApi);
+    }
+
+    @Bean
+    public Queue queueC() {
+        return stageQueue(QUEUE_BaiduApi_TO_TextExtract);
+    }
+
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE, true, false);
+    }
+
+    //每个业务队列对应的死信队列和延迟重试队列
+    //延迟队列没有消费者，消息过期后经默认交换机回到原队列
+    @Bean
+    public Declarables retryAndDeadLetterQueues(DirectExchange deadLetterExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (String queue : STAGE_QUEUES) {
+            Queue deadLetterQueue = QueueBuilder.durable(queue + DEAD_LETTER_SUFFIX).build();
+            declarables.add(deadLetterQueue);
+            declarables.add(BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange).with(queue));
+            for (int attempt = 1; attempt <= retryMaxAttempts; attempt++) {
+                declarables.add(QueueBuilder.durable(retryQueueName(queue, attempt))
+                        .ttl((int) retryDelayMillis(attempt))
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(queue)
+                        .build());
+            }
+        }
+        return new Declarables(declarables);
+    }
+
+    //下载转换阶段的监听容器，消费者运行在downloadAudioExecutor线程池上
+    @Bean
+    public SimpleRabbitListenerContainerFactory downloadAudioListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                       @Qualifier("downloadAudioExecutor") Executor downloadAudioExecutor) {
+        return stageListenerContainerFactory(connectionFactory, downloadAudioExecutor,
+                downloadConcurrency, downloadMaxConcurrency, downloadPrefetch);
+    }
+
+    //语音识别阶段消费者专属的线程池，线程数等于最大消费者数，每个消费者都能立即启动；
+    //分段识别的任务仍提交到baiduApiExecutor，不与消费者争抢线程
+    @Bean("baiduApiListenerExecutor")
+    public ThreadPoolTaskExecutor baiduApiListenerExecutor(ExecutorMetrics executorMetrics) {
+        int consumers = Math.max(asrConcurrency, asrMaxConcurrency);
+        ExecutorMetrics.Instrumentation instrumentation = executorMetrics.instrument("baiduApiListener");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(consumers);
+        executor.setMaxPoolSize(consumers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("baiduApiListener");
+        executor.setTaskDecorator(instrumentation);
+        executor.initialize();
+        instrumentation.bind(executor);
+        return executor;
+    }
+
+    //语音识别阶段的监听容器，消费者运行在专属线程池上
+    @Bean
+    public SimpleRabbitListenerContainerFactory baiduApiListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                  @Qualifier("baiduApiListenerExecutor") Executor baiduApiListenerExecutor) {
+        return stageListenerContainerFactory(connectionFactory, baiduApiListenerExecutor,
+                asrConcurrency, asrMaxConcurrency, asrPrefetch);
+    }
+
+    private Queue stageQueue(String name) {
+        return QueueBuilder.durable(name).deadLetterExchange(DEAD_LETTER_EXCHANGE).build();
+    }
+
+    private long retryDelayMillis(int attempt) {
+        return retryDelayMillis(retryInitialDelayMillis, retryMultiplier, attempt);
+    }
+
+    /**
+     * 第attempt次重试前的等待时间，两种消息模式共用
+     */
+    public static long retryDelayMillis(long initialDelayMillis, double multiplier, int attempt) {
+        return (long) (initialDelayMillis * Math.pow(multiplier, attempt - 1));
+    }
+
+    /**
+     * 手动确认的监听容器，消息在处理完成后由StageMessageHandler确认
+     */
+    private SimpleRabbitListenerContainerFactory stageListenerContainerFactory(ConnectionFactory connectionFactory, Executor executor,
+                                                                               int concurrency, int maxConcurrency, int prefetch) {
+        int maxConsumers = Math.max(concurrency, maxConcurrency);
+        // 每个消费者固定占用一个线程；线程池在队列排满之前不会扩到核心线程数以上，超出核心线程数的消费者只会排队，迟迟不能启动
+        if (executor instanceof ThreadPoolTaskExecutor pool && maxConsumers > pool.getCorePoolSize()) {
+            logger.warn("{} 的消费者数量 {} 超过线程池核心线程数 {}", pool.getThreadNamePrefix(), maxConsumers, pool.getCorePoolSize());
+        }
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConsumers);
+        factory.setPrefetchCount(prefetch);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        factory.setTaskExecutor(executor);
+        return factory;
     }
 
 }
@@ -1,8 +1,11 @@
 package com.alan.dy1.Controller;
 
+import com.alan.dy1.Service.AudioConversionJobService;
 import com.alan.dy1.Service.AudioConversionService;
 import com.alan.dy1.Service.GetWorkCountService;
 import com.alan.dy1.Service.SpeechRecognitionService;
+import com.alan.dy1.audio.PcmAudio;
+import com.alan.dy1.domain.ConversionJob;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +27,9 @@ public class DouyinController {
     
     @Autowired
     private SpeechRecognitionService speechRecognitionService;
+    
+    @Autowired
+    private AudioConversionJobService audioConversionJobService;
 
     @GetMapping("/works-count")
     public ResponseEntity<Map<String, Object>> getUserWorksCount(@RequestParam("url") String url) {
@@ -34,27 +40,13 @@ public class DouyinController {
     public ResponseEntity<Map<String, Object>> convertAudioFiles(@RequestParam(value = "sourceDir", defaultValue = "douyin_tools/audio") String sourceDir) {
         Map<String, Object> response = new java.util.HashMap<>();
         try {
-            // 获取目录下的所有MP3文件并逐一转换
-            java.io.File dir = new java.io.File(sourceDir);
-            if (!dir.exists() || !dir.isDirectory()) {
-                throw new IOException("指定的目录不存在或不是一个目录: " + sourceDir);
-            }
-            
-            java.io.File[] mp3Files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".mp3"));
-            if (mp3Files == null || mp3Files.length == 0) {
-                response.put("success", true);
-                response.put("message", "目录中没有找到MP3文件");
-                return ResponseEntity.ok(response);
-            }
-            
-            // 转换每个MP3文件
-            for (java.io.File mp3File : mp3Files) {
-                audioConversionService.convertMp3ToWav(sourceDir, mp3File.getName());
-            }
-            
+            // 提交后台任务，目录下的MP3文件在线程池上并行转换，接口立即返回任务id
+            ConversionJob job = audioConversionJobService.submit(sourceDir);
             response.put("success", true);
-            response.put("message", "音频文件转换完成，共处理了 " + mp3Files.length + " 个文件");
-            return ResponseEntity.ok(response);
+            response.put("jobId", job.getJobId());
+            response.put("total", job.getTotal());
+            response.put("message", job.getTotal() == 0 ? "目录中没有找到MP3文件" : "已提交转换任务，共 " + job.getTotal() + " 个文件");
+            return ResponseEntity.accepted().body(response);
         } catch (IOException e) {
             response.put("success", false);
             response.put("error", "音频转换失败: " + e.getMessage());
@@ -62,11 +54,26 @@ public class DouyinController {
         }
     }
     
+    @GetMapping("/convert-audio/{jobId}")
+    public ResponseEntity<ConversionJob> getConversionJob(@PathVariable("jobId") String jobId) {
+        ConversionJob job = audioConversionJobService.getJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+    
     @PostMapping("/recognize-speech")
-    public ResponseEntity<Map<String, Object>> recognizeSpeech(@RequestParam("audioFile") String audioFilePath) {
+    public ResponseEntity<Map<String, Object>> recognizeSpeech(@RequestParam("audioFile") String audioFilePath,
+                                                               @RequestParam(value = "pcm", defaultValue = "false") boolean pcm) {
         Map<String, Object> response = new java.util.HashMap<>();
         try {
-            String result = speechRecognitionService.recognizeSpeech(audioFilePath);
+            String result;
+            if (pcm) {
+                // 在内存中解码为PCM后识别，支持任意FFmpeg能读取的格式
+                try (PcmAudio audio = audioConversionService.decodeFileToPcm(audioFilePath)) {
+                    result = speechRecognitionService.recognizePcm(audio.getData());
+                }
+            } else {
+                result = speechRecognitionService.recognizeSpeech(audioFilePath);
+            }
             response.put("success", true);
             response.put("text", result);
             return ResponseEntity.ok(response);
@@ -2,19 +2,33 @@ package com.alan.dy1.Controller;
 
 import com.alan.dy1.Service.DouyinDataService;
 import com.alan.dy1.domain.Douyin;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/douyin-data")
 public class DouyinDataController {
     
+    // 游标分页每页最大数量
+    private static final int MAX_PAGE_SIZE = 1000;
+    
     @Autowired
     private DouyinDataService douyinDataService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping("/save")
     @ResponseBody
     public String saveDouyinData(@RequestBody Douyin douyin) {
@@ -22,9 +36,47 @@ public class DouyinDataController {
         return result;
     }
     
+    @PostMapping("/save-batch")
+    @ResponseBody
+    public String saveDouyinDataBatch(@RequestBody List<Douyin> douyins) {
+        return douyinDataService.saveAllDouyinData(douyins);
+    }
+    
     @GetMapping("/all")
     @ResponseBody
     public List<Douyin> getAllDouyinData() {
         return douyinDataService.getAllDouyinData();
     }
-}
\ No newline at end of file
+    
+    /**
+     * 按id游标分页查询
+     * 返回的nextCursor作为下一页的afterId，为null时表示没有更多数据
+     */
+    @GetMapping("/page")
+    @ResponseBody
+    public Map<String, Object> getDouyinDataPage(@RequestParam(value = "afterId", defaultValue = "0") Integer afterId,
+                                                 @RequestParam(value = "size", defaultValue = "100") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Douyin> items = douyinDataService.getDouyinDataPage(afterId, pageSize);
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("nextCursor", items.size() < pageSize ? null : items.get(items.size() - 1).getId());
+        return response;
+    }
+    
+    /**
+     * 以NDJSON格式流式输出全部数据，每行一条，边读边写
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllDouyinData() {
+        StreamingResponseBody body = outputStream -> douyinDataService.streamAllDouyinData(douyin -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(douyin));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+}
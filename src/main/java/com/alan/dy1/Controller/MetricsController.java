@@ -0,0 +1,196 @@
+package com.alan.dy1.Controller;
+
+import com.alan.dy1.Config.ExecutorMetrics;
+import com.alan.dy1.Service.AllStart;
+import com.alan.dy1.Service.AudioConversionService;
+import com.alan.dy1.Service.CreatorScheduler;
+import com.alan.dy1.Service.PipelineIdempotencyService;
+import com.alan.dy1.Service.SpeechRecognitionService;
+import com.alan.dy1.asr.TranscriptCache;
+import com.alan.dy1.audio.PcmBufferPool;
+import com.alan.dy1.audio.SilenceTrimmer;
+import com.alan.dy1.domain.SweepResult;
+import com.alan.dy1.mq.PipelineCoordinator;
+import com.alan.dy1.mq.PipelineMessaging;
+import com.alan.dy1.process.ProcessRunner;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.trace.PipelineTracer;
+import com.alan.dy1.worker.PythonWorkerPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 运行指标查询接口
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private ProcessRunner processRunner;
+
+    @Autowired
+    private List<PythonWorkerPool> workerPools;
+
+    @Autowired
+    private AllStart allStart;
+
+    @Autowired
+    private CreatorScheduler creatorScheduler;
+
+    @Autowired
+    private CreatorCache creatorCache;
+
+    @Autowired
+    private PcmBufferPool pcmBufferPool;
+
+    @Autowired
+    private SilenceTrimmer silenceTrimmer;
+
+    @Autowired
+    private TranscriptCache transcriptCache;
+
+    @Autowired
+    private PipelineIdempotencyService pipelineIdempotencyService;
+
+    @Autowired
+    private PipelineMessaging pipelineMessaging;
+
+    @Autowired
+    private PipelineCoordinator pipelineCoordinator;
+
+    @Autowired
+    private AudioConversionService audioConversionService;
+
+    @Autowired
+    private SpeechRecognitionService speechRecognitionService;
+
+    @Autowired
+    private ExecutorMetrics executorMetrics;
+
+    @Autowired
+    private PipelineTracer pipelineTracer;
+
+    /**
+     * 外部进程统计：一次性脚本调用的耗时和退出码，以及常驻worker池状态
+     */
+    @GetMapping("/process")
+    public Map<String, Object> getProcessMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("scripts", processRunner.getMetrics());
+        response.put("workerPools", workerPools.stream().map(PythonWorkerPool::getStats).collect(Collectors.toList()));
+        return response;
+    }
+
+    /**
+     * 最近一次全量检查的耗时和吞吐
+     */
+    @GetMapping("/sweep")
+    public SweepResult getLastSweepResult() {
+        return allStart.getLastSweepResult();
+    }
+
+    /**
+     * 自适应轮询调度器状态
+     */
+    @GetMapping("/scheduler")
+    public Map<String, Object> getSchedulerStatus() {
+        return creatorScheduler.getStatus();
+    }
+
+    /**
+     * 博主缓存命中率
+     */
+    @GetMapping("/creator-cache")
+    public Map<String, Object> getCreatorCacheStats() {
+        return creatorCache.getStats();
+    }
+
+    /**
+     * PCM缓冲区池的复用情况
+     */
+    @GetMapping("/pcm-buffers")
+    public Map<String, Object> getPcmBufferStats() {
+        return pcmBufferPool.getStats();
+    }
+
+    /**
+     * 静音检测累计移除的时长
+     */
+    @GetMapping("/vad")
+    public Map<String, Object> getVadStats() {
+        return silenceTrimmer.getStats();
+    }
+
+    /**
+     * 识别结果缓存的命中情况
+     */
+    @GetMapping("/transcript-cache")
+    public Map<String, Object> getTranscriptCacheStats() {
+        return transcriptCache.getStats();
+    }
+
+    /**
+     * 下载任务去重情况：处理中的消息键、发布时抑制的重复和消费时跳过的已处理消息
+     */
+    @GetMapping("/idempotency")
+    public Map<String, Object> getIdempotencyStats() {
+        return pipelineIdempotencyService.getStats();
+    }
+
+    /**
+     * 流水线消息模式及各队列的收发统计
+     */
+    @GetMapping("/pipeline-queues")
+    public Map<String, Object> getPipelineQueueStats() {
+        return pipelineMessaging.getStats();
+    }
+
+    /**
+     * 各阶段的容量、在途数量和等待的发布方
+     */
+    @GetMapping("/backpressure")
+    public Map<String, Object> getBackpressureStats() {
+        return pipelineCoordinator.getStats();
+    }
+
+    /**
+     * 各下游资源的并发限制：外部进程、识别接口在途请求和FFmpeg解码
+     */
+    @GetMapping("/concurrency")
+    public Map<String, Object> getConcurrencyStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("process", processRunner.getConcurrencyStats());
+        response.put("asr", speechRecognitionService.getRequestConcurrencyStats());
+        response.put("ffmpeg", audioConversionService.getDecodeStats());
+        return response;
+    }
+
+    /**
+     * 各执行器的队列深度、线程数、完成和拒绝次数，以及排队等待和执行耗时分布
+     */
+    @GetMapping("/executors")
+    public Map<String, Object> getExecutorStats() {
+        return executorMetrics.getStats();
+    }
+
+    /**
+     * 流水线各阶段的耗时分布，以及最近的追踪中从发现新作品到识别完成最慢的几条
+     * @param limit 返回的追踪条数
+     */
+    @GetMapping("/traces")
+    public Map<String, Object> getTraces(@RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("stages", pipelineTracer.getStageStats());
+        response.put("slowest", pipelineTracer.getSlowestTraces(limit));
+        return response;
+    }
+}
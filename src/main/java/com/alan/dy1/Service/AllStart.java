@@ -1,5 +1,7 @@
 package com.alan.dy1.Service;
 
+import com.alan.dy1.domain.SweepResult;
+
 /**
  * 全流程服务接口
  * 用于启动所有子服务
@@ -9,4 +11,10 @@ public interface AllStart {
      * 启动所有子服务，按顺序执行
      */
     void startAllServices();
+
+    /**
+     * 获取最近一次全量检查的汇总结果
+     * @return 汇总结果，尚未执行过时返回null
+     */
+    SweepResult getLastSweepResult();
 }
\ No newline at end of file
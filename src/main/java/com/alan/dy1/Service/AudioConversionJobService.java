@@ -0,0 +1,27 @@
+package com.alan.dy1.Service;
+
+import com.alan.dy1.domain.ConversionJob;
+
+import java.io.IOException;
+
+/**
+ * 批量音频转换任务服务
+ * 提交后立即返回任务，文件在downloadAudioExecutor线程池上并行转换
+ */
+public interface AudioConversionJobService {
+
+    /**
+     * 提交目录下所有MP3文件的转换任务
+     * @param sourceDir 源目录
+     * @return 新建的任务
+     * @throws IOException 目录不存在或不是目录
+     */
+    ConversionJob submit(String sourceDir) throws IOException;
+
+    /**
+     * 查询任务进度
+     * @param jobId 任务id
+     * @return 任务，不存在或已被清理时返回null
+     */
+    ConversionJob getJob(String jobId);
+}
@@ -1,6 +1,9 @@
 package com.alan.dy1.Service;
 
+import com.alan.dy1.audio.PcmAudio;
+
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * 音频转换服务接口
@@ -16,4 +19,38 @@ public interface AudioConversionService {
      * @throws IOException IO异常
      */
     void convertMp3ToWav(String sourceDir, String fileName) throws IOException;
-}
\ No newline at end of file
+    
+    /**
+     * 边下载边解码，将远程音频直接转换为WAV保存到converted_audio目录
+     * 下载内容不落地，解码在下载完成前就开始
+     * @param mediaUrl 音频地址
+     * @param headers 下载时附带的请求头
+     * @param name 输出文件名（不含扩展名）
+     * @return 生成的WAV文件名
+     * @throws IOException 下载或转换失败
+     */
+    String convertStreamToWav(String mediaUrl, Map<String, String> headers, String name) throws IOException;
+    
+    /**
+     * 边下载边解码，直接得到内存中的16kHz单声道s16le PCM，不写任何文件
+     * @param mediaUrl 音频地址
+     * @param headers 下载时附带的请求头
+     * @return PCM音频，使用完需要close归还缓冲区
+     * @throws IOException 下载或解码失败
+     */
+    PcmAudio decodeStreamToPcm(String mediaUrl, Map<String, String> headers) throws IOException;
+    
+    /**
+     * 将本地音频文件解码为内存中的16kHz单声道s16le PCM
+     * @param filePath 音频文件路径
+     * @return PCM音频，使用完需要close归还缓冲区
+     * @throws IOException 文件不存在或解码失败
+     */
+    PcmAudio decodeFileToPcm(String filePath) throws IOException;
+    
+    /**
+     * 获取FFmpeg解码并发统计
+     * @return 并发上限、当前并发数和排队情况
+     */
+    Map<String, Object> getDecodeStats();
+}
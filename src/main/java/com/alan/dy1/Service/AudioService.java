@@ -5,5 +5,21 @@ import org.springframework.http.ResponseEntity;
 import java.util.Map;
 
 public interface AudioService {
-    ResponseEntity<Map<String, Object>> downloadAndConvertAudio(String url);
+    /**
+     * 下载博主最新count个作品的音频到douyin_tools/audio，一次脚本调用完成
+     * 响应的files中每项包含file_path和file_name
+     * @param url 博主主页URL
+     * @param count 作品数量
+     * @return 下载结果
+     */
+    ResponseEntity<Map<String, Object>> downloadAndConvertAudio(String url, int count);
+
+    /**
+     * 只解析博主最新count个作品的音频地址，不下载到磁盘
+     * 响应的files中每项包含media_url、name和下载所需的headers
+     * @param url 博主主页URL
+     * @param count 作品数量
+     * @return 解析结果
+     */
+    ResponseEntity<Map<String, Object>> resolveAudioUrls(String url, int count);
 }
\ No newline at end of file
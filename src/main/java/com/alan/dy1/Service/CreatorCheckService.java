@@ -0,0 +1,18 @@
+package com.alan.dy1.Service;
+
+import com.alan.dy1.domain.CheckOutcome;
+import com.alan.dy1.domain.Douyin;
+
+/**
+ * 博主作品数量检查服务接口
+ */
+public interface CreatorCheckService {
+
+    /**
+     * 检查单个博主的作品数量
+     * 有新作品时发送下载任务，作品减少时更新作品数
+     * @param douyin 博主数据
+     * @return 检查结果
+     */
+    CheckOutcome checkCreator(Douyin douyin);
+}
@@ -0,0 +1,26 @@
+package com.alan.dy1.Service;
+
+import java.util.Map;
+
+/**
+ * 博主自适应轮询调度接口
+ * 按每个博主的下次到期时间排队检查，检查间隔随其发布频率自动调整
+ */
+public interface CreatorScheduler {
+
+    /**
+     * 执行一轮调度，检查所有已到期且在预算内的博主
+     */
+    void tick();
+
+    /**
+     * 从数据库重新加载博主列表，加入新增的博主
+     */
+    void reload();
+
+    /**
+     * 获取调度器状态
+     * @return 队列长度、进行中的检查数、剩余预算等
+     */
+    Map<String, Object> getStatus();
+}
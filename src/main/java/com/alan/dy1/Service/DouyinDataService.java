@@ -3,6 +3,7 @@ package com.alan.dy1.Service;
 import com.alan.dy1.domain.Douyin;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DouyinDataService {
     /**
@@ -12,9 +13,30 @@ public interface DouyinDataService {
      */
     String saveDouyinData(Douyin douyin);
     
+    /**
+     * 批量保存抖音数据，一批数据只需少量数据库往返
+     * @param douyins 抖音数据列表
+     * @return 保存结果消息
+     */
+    String saveAllDouyinData(List<Douyin> douyins);
+    
     /**
      * 获取所有抖音数据
      * @return 抖音数据列表
      */
     List<Douyin> getAllDouyinData();
+    
+    /**
+     * 按id游标分页获取抖音数据
+     * @param afterId 上一页最后一条的id，首页传0
+     * @param size 每页数量
+     * @return id升序的抖音数据列表
+     */
+    List<Douyin> getDouyinDataPage(Integer afterId, int size);
+    
+    /**
+     * 逐条流式处理全部抖音数据，内存占用与数据量无关
+     * @param consumer 每条数据的处理逻辑
+     */
+    void streamAllDouyinData(Consumer<Douyin> consumer);
 }
\ No newline at end of file
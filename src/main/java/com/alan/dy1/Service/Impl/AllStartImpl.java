@@ -4,30 +4,54 @@ import com.alan.dy1.Config.mqConfig;
 import com.alan.dy1.Service.AllStart;
 import com.alan.dy1.Service.AudioConversionService;
 import com.alan.dy1.Service.AudioService;
-import com.alan.dy1.Service.GetWorkCountService;
+import com.alan.dy1.Service.CreatorCheckService;
+import com.alan.dy1.Service.PipelineIdempotencyService;
 import com.alan.dy1.Service.SpeechRecognitionService;
+import com.alan.dy1.asr.TranscriptCache;
+import com.alan.dy1.audio.PcmAudio;
+import com.alan.dy1.domain.CheckOutcome;
 import com.alan.dy1.domain.Douyin;
-import com.alan.dy1.repository.DouyinRepository;
-import org.apache.coyote.Response;
+import com.alan.dy1.domain.SweepResult;
+import com.alan.dy1.domain.Transcript;
+import com.alan.dy1.mq.AudioReadyMessage;
+import com.alan.dy1.mq.NewWorksMessage;
+import com.alan.dy1.mq.PipelineMessaging;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.repository.CreatorStateBuffer;
+import com.alan.dy1.repository.TranscriptRepository;
+import com.alan.dy1.trace.PipelineTracer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class AllStartImpl implements AllStart {
     
     private static final Logger logger = LoggerFactory.getLogger(AllStartImpl.class);
+
+    private static final String AUDIO_FOLDER = "douyin_tools/audio";
+
+    private static final String CONVERTED_AUDIO_FOLDER = "douyin_tools/converted_audio";
     
     @Autowired
     private AudioService audioService;
@@ -39,88 +63,349 @@ public class AllStartImpl implements AllStart {
     private SpeechRecognitionService speechRecognitionService;
     
     @Autowired
-    private GetWorkCountService getWorkCountService;
+    private CreatorCheckService creatorCheckService;
 
     @Autowired
-    private DouyinRepository douyinRepository;
+    private CreatorCache creatorCache;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private CreatorStateBuffer creatorStateBuffer;
+
+    @Autowired
+    private PipelineMessaging pipelineMessaging;
+
+    @Autowired
+    private TranscriptRepository transcriptRepository;
+
+    @Autowired
+    private PipelineIdempotencyService pipelineIdempotencyService;
+
+    @Autowired
+    private PipelineTracer pipelineTracer;
+
+    @Autowired
+    @Qualifier("getWorkCountExecutor")
+    private Executor getWorkCountExecutor;
+
+    // 同时检查的博主数量上限，默认与worker池大小一致
+    @Value("${douyin.sweep.concurrency:${python.worker.pool-size:2}}")
+    private int sweepConcurrency;
+
+    // 每次从数据库读取的博主数量
+    @Value("${douyin.sweep.page-size:200}")
+    private int sweepPageSize;
+
+    // 一轮全量检查的最长时间，超时后不再提交新的检查，下一轮从未提交的博主继续
+    @Value("${douyin.sweep.timeout-ms:3600000}")
+    private long sweepTimeoutMillis;
+
+    // 是否边下载边解码，关闭时先把MP3下载到磁盘再转换
+    @Value("${audio.streaming.enabled:true}")
+    private boolean streamingConversion;
+
+    // 是否解码为内存中的PCM直接识别，不生成WAV文件
+    @Value("${audio.pcm.enabled:false}")
+    private boolean pcmRecognition;
+
+    // 识别完成后删除WAV文件
+    @Value("${audio.wav.delete-after-recognition:true}")
+    private boolean deleteWavAfterRecognition;
+
+    // 单次下载的作品数上限，作品数解析异常时避免一次下载整个主页
+    @Value("${audio.download.max-count:20}")
+    private int maxDownloadCount;
+
+    private volatile SweepResult lastSweepResult;
+
+    // 上一轮超时时最后提交检查的博主id，下一轮从它之后继续；上一轮走完全表时为0
+    private volatile int sweepResumeId;
 
     @Override
     public void startAllServices() {
         logger.info("开始执行所有服务...");
         
-        // 使用专属线程池执行步骤1: 检查视频数量
+        // 步骤1: 在专属线程池上并发检查视频数量
         executeVideoCheckStep();
 
     }
     
-    @Async("getWorkCountExecutor")
-    public void executeVideoCheckStep() {
+    /**
+     * 步骤1: 按id游标分页读取所有博主，在getWorkCountExecutor线程池上并发检查作品数量
+     * 只受douyin.sweep.concurrency限制，不占用自适应调度的每分钟检查数；
+     * 等待全部检查完成或超过douyin.sweep.timeout-ms后返回汇总结果，超时时记下游标，下一轮从未提交的博主继续
+     */
+    public SweepResult executeVideoCheckStep() {
         logger.info("步骤1: 检查视频数量");
-        List<Douyin> allList = douyinRepository.findAll();
-
-        for (Douyin douyin : allList){
-            String userUrl = douyin.getUrl();
-            int oldNumber = douyin.getWorkNumber();
-            ResponseEntity<Map<String, Object>> response = getWorkCountService.getUserWorksCount(userUrl);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-                if (responseBody.containsKey("worksCount")) {
-
-                    Integer worksCount = (Integer) responseBody.get("worksCount");
-                    // 业务逻辑处理
-                    if (worksCount > oldNumber) {
-                        // 处理有新作品的情况
-                        //发送消息给rabbitmq
-                        rabbitTemplate.convertAndSend(mqConfig.QUEUE_NEW_TO_DownloadAndChange, userUrl);
-
-                    } else if (worksCount < oldNumber){
-                        // 处理删作品的情况
-                        douyin.setWorkNumber(worksCount);
-                        douyinRepository.save(douyin);
-
-                    } else if (worksCount == oldNumber){
-                        // 处理无新作品情况
-                        logger.info("无新作品,结束流程");
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(sweepTimeoutMillis);
+        SweepResult result = new SweepResult();
+        Semaphore permits = new Semaphore(sweepConcurrency);
+        List<CompletableFuture<CheckOutcome>> checks = new ArrayList<>();
+        // 全量检查读一遍数据库，看到其他途径新增或删除的博主
+        creatorCache.invalidateAll();
+
+        try {
+            List<Douyin> page;
+            int lastId = sweepResumeId;
+            int submittedId = lastId;
+            boolean timedOut = false;
+            if (lastId > 0) {
+                logger.info("上一轮全量检查未走完，从博主id {} 之后继续", lastId);
+            }
+            sweep:
+            do {
+                // 按id游标翻页，每页代价与位置无关；缓存已有全表数据时直接读内存
+                page = creatorCache.findPage(lastId, sweepPageSize);
+                for (Douyin douyin : page) {
+                    lastId = douyin.getId();
+                    if (!permits.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        logger.warn("检查视频数量超时，已提交 {} 个，其余留到下一轮", checks.size());
+                        timedOut = true;
+                        break sweep;
+                    }
+                    submittedId = lastId;
+                    CompletableFuture<CheckOutcome> check;
+                    try {
+                        check = CompletableFuture.supplyAsync(() -> creatorCheckService.checkCreator(douyin), getWorkCountExecutor);
+                    } catch (RejectedExecutionException e) {
+                        // 线程池拒绝时任务不会执行，许可当场归还
+                        permits.release();
+                        logger.warn("检查任务被线程池拒绝: {}", douyin.getUrl());
+                        result.record(CheckOutcome.FAILED);
+                        continue;
                     }
+                    checks.add(check.whenComplete((outcome, error) -> {
+                        if (error != null) {
+                            logger.error("检查博主失败: {}", douyin.getUrl(), error);
+                        }
+                        result.record(error == null ? outcome : CheckOutcome.FAILED);
+                        permits.release();
+                    }));
                 }
-            }
+            } while (page.size() == sweepPageSize);
+            // 走完了全表时下一轮从头开始
+            sweepResumeId = timedOut ? submittedId : 0;
+
+            CompletableFuture.allOf(checks.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("检查视频数量被中断，已完成 {} 个", result.getTotal());
+        } catch (TimeoutException e) {
+            logger.warn("检查视频数量超时，{} 个检查未完成", checks.stream().filter(check -> !check.isDone()).count());
+        } catch (ExecutionException e) {
+            // 单个检查的异常已在whenComplete中计入失败
         }
+
+        // 本轮所有状态变化一次性批量写回
+        creatorStateBuffer.flush();
+        result.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        lastSweepResult = result;
+        logger.info("步骤1完成: {}", result);
+        return result;
     }
 
-    @Async("downloadAudioExecutor")
-    @RabbitListener(queues = mqConfig.QUEUE_NEW_TO_DownloadAndChange)
-    public void executeDownloadAudioStep(String url) {
-        logger.info("步骤2: 下载音频并转换为WAV");
-        try {
-            ResponseEntity<Map<String, Object>> response = audioService.downloadAndConvertAudio(url);
-            if (response.getStatusCode().is2xxSuccessful() && 
-                response.getBody() != null && 
-                (Boolean) response.getBody().get("success")) {
-                
-                String fileName = (String) response.getBody().get("file_name");
-                audioConversionService.convertMp3ToWav("douyin_tools/audio", fileName);
-                
+    @Override
+    public SweepResult getLastSweepResult() {
+        return lastSweepResult;
+    }
+
+    /**
+     * 注册步骤2、3的消息处理逻辑，消费者数量和运行的线程池由消息模式决定，见PipelineMessaging的实现
+     */
+    @PostConstruct
+    public void subscribeStages() {
+        pipelineMessaging.subscribe(mqConfig.QUEUE_NEW_TO_DownloadAndChange, NewWorksMessage.class, this::executeDownloadAudioStep);
+        pipelineMessaging.subscribe(mqConfig.QUEUE_DownloadAndChange_TO_BaiduApi, AudioReadyMessage.class, this::executeSpeechRecognitionStep);
+    }
+
+    /**
+     * 步骤2: 消费新作品消息，按新增的作品数下载音频并转换为WAV
+     * 抛出异常时消息进入延迟重试，已处理过的消息直接跳过
+     */
+    public void executeDownloadAudioStep(NewWorksMessage task) throws Exception {
+        String key = task.messageId();
+        pipelineTracer.record(PipelineTracer.STAGE_DOWNLOAD_QUEUE, task.url(), System.currentTimeMillis() - task.detectedAt());
+        if (pipelineIdempotencyService.isProcessed(key)) {
+            logger.info("下载任务已处理过，跳过: {} {}", key, task.url());
+            // 作品数可能已被删作品的检查改小，仍推进到目标值，否则该博主每次检查都会重新发布这个任务
+            pipelineIdempotencyService.advanceWorkNumber(task.creatorId(), task.newCount());
+            return;
+        }
+        downloadAudio(task);
+        pipelineIdempotencyService.completeDownload(key, task.creatorId(), task.newCount());
+    }
+
+    /**
+     * 一次脚本调用取回全部新作品，单个作品失败不影响其余作品，全部处理完后只要有失败或少取回就抛出，由消息重试
+     */
+    private void downloadAudio(NewWorksMessage task) throws IOException, InterruptedException {
+        int count = Math.max(1, Math.min(task.delta(), maxDownloadCount));
+        if (task.delta() > maxDownloadCount) {
+            logger.warn("新作品数 {} 超过单次下载上限，只下载最新 {} 个: {}", task.delta(), count, task.url());
+        }
+        if (streamingConversion) {
+            executeStreamingAudioStep(task, count);
+            return;
+        }
+        logger.info("步骤2: 下载 {} 个音频并转换为WAV", count);
+        ResponseEntity<Map<String, Object>> response;
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_DOWNLOAD, task.url())) {
+            response = audioService.downloadAndConvertAudio(task.url(), count);
+        }
+        List<Map<String, Object>> files = returnedFiles(response);
+        int failed = 0;
+        for (Map<String, Object> file : files) {
+            String fileName = (String) file.get("file_name");
+            String videoUrl = (String) file.get("video_url");
+            try {
+                if (pipelineIdempotencyService.isWorkPublished(task.creatorId(), videoUrl)) {
+                    // 上次尝试已发送过这个作品，重新下载的MP3不再转换
+                    logger.info("作品已处理过，跳过: {}", videoUrl);
+                    Files.deleteIfExists(Paths.get(AUDIO_FOLDER, fileName));
+                    continue;
+                }
+                audioConversionService.convertMp3ToWav(AUDIO_FOLDER, fileName);
                 // 生成WAV文件名
                 String wavFileName = fileName;
                 if (fileName.endsWith(".mp3")) {
                     wavFileName = fileName.substring(0, fileName.length() - 4) + ".wav";
                 }
-                
-                //通知wav转换成功
-                rabbitTemplate.convertAndSend(mqConfig.QUEUE_DownloadAndChange_TO_BaiduApi, wavFileName);
+                publishAudioReady(task, videoUrl, wavFileName);
+                pipelineIdempotencyService.markWorkPublished(task.creatorId(), videoUrl);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                failed++;
+                logger.error("转换音频失败: {} {}", fileName, e.getMessage(), e);
+            }
+        }
+        checkAllProcessed(task, count, files.size(), failed, response);
+    }
+
+    /**
+     * 脚本返回的成功作品，脚本整体失败或部分失败时也取出已成功的部分
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> returnedFiles(ResponseEntity<Map<String, Object>> response) throws IOException {
+        Map<String, Object> body = response.getBody();
+        if (body == null) {
+            throw new IOException("音频脚本没有返回结果，状态码: " + response.getStatusCode());
+        }
+        if (body.containsKey("files")) {
+            return (List<Map<String, Object>>) body.get("files");
+        }
+        // 单个作品的旧格式输出
+        return Boolean.TRUE.equals(body.get("success")) && body.get("file_name") != null ? List.of(body) : List.of();
+    }
 
-            } else {
+    /**
+     * 取回的作品少于请求数或有作品处理失败时抛出，由消息重试；已发送的作品重试时会被跳过
+     */
+    private static void checkAllProcessed(NewWorksMessage task, int requested, int returned, int failed,
+                                          ResponseEntity<Map<String, Object>> response) throws IOException {
+        int missing = Math.max(0, requested - returned);
+        if (failed > 0 || missing > 0 || !Boolean.TRUE.equals(response.getBody().get("success"))) {
+            throw new IOException("音频处理未全部完成: 请求 " + requested + " 个，未取回 " + missing + " 个，处理失败 " + failed
+                    + " 个: " + task.url() + " " + response.getBody().get("error"));
+        }
+    }
 
-                logger.error("音频下载失败: {}", response.getBody());
+    /**
+     * 步骤2（流式）：脚本只解析音频地址，下载的数据直接送入解码器转换为WAV，不在磁盘上落地MP3
+     */
+    @SuppressWarnings("unchecked")
+    private void executeStreamingAudioStep(NewWorksMessage task, int count) throws IOException, InterruptedException {
+        logger.info("步骤2: 流式下载 {} 个音频并转换为WAV", count);
+        ResponseEntity<Map<String, Object>> response;
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_DOWNLOAD, task.url())) {
+            response = audioService.resolveAudioUrls(task.url(), count);
+        }
+        List<Map<String, Object>> files = returnedFiles(response);
+        int failed = 0;
+        for (Map<String, Object> file : files) {
+            String mediaUrl = (String) file.get("media_url");
+            String videoUrl = (String) file.get("video_url");
+            Map<String, String> headers = (Map<String, String>) file.get("headers");
+            try {
+                if (pipelineIdempotencyService.isWorkPublished(task.creatorId(), videoUrl)) {
+                    logger.info("作品已处理过，跳过: {}", videoUrl);
+                    continue;
+                }
+                if (pcmRecognition) {
+                    recognizeInMemory(mediaUrl, headers, task.detectedAt());
+                } else {
+                    String wavFileName = audioConversionService.convertStreamToWav(mediaUrl, headers, (String) file.get("name"));
+                    publishAudioReady(task, videoUrl, wavFileName);
+                }
+                pipelineIdempotencyService.markWorkPublished(task.creatorId(), videoUrl);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                failed++;
+                logger.error("处理音频失败: {} {}", mediaUrl, e.getMessage(), e);
             }
-        } catch (IOException e) {
-            logger.error("音频转换过程中发生IO异常: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("音频转换过程中发生未知异常: {}", e.getMessage(), e);
         }
+        checkAllProcessed(task, count, files.size(), failed, response);
+    }
+
+    /**
+     * 通知wav转换成功，带上文件内容的哈希供识别阶段校验
+     * 识别阶段已满时在这里等待，下载阶段随之放慢
+     */
+    private void publishAudioReady(NewWorksMessage task, String videoUrl, String wavFileName) throws IOException, InterruptedException {
+        String contentHash = TranscriptCache.sha256(Paths.get(CONVERTED_AUDIO_FOLDER, wavFileName));
+        AudioReadyMessage message = new AudioReadyMessage(task.creatorId(), videoUrl, wavFileName, contentHash,
+                task.detectedAt(), System.currentTimeMillis());
+        pipelineMessaging.publish(mqConfig.QUEUE_DownloadAndChange_TO_BaiduApi, message);
+    }
+
+    /**
+     * 下载的数据解码为PCM后直接提交识别，整个过程不写任何文件
+     */
+    private void recognizeInMemory(String mediaUrl, Map<String, String> headers, long detectedAt) throws Exception {
+        long startNanos = System.nanoTime();
+        try (PcmAudio audio = audioConversionService.decodeStreamToPcm(mediaUrl, headers)) {
+            String text = speechRecognitionService.recognizePcm(audio.getData());
+            logger.info("识别完成: {} 时长 {}ms（去除静音 {}ms）", mediaUrl, audio.getDurationMillis(), audio.getTrimmedMillis());
+            completeRecognition(mediaUrl, text, startNanos, detectedAt);
+        }
+    }
+
+    /**
+     * 步骤3: 消费转换好的WAV文件名，调用语音识别，保存结果并通知下一阶段
+     * 接口调用频率由baidu.asr.qps限制
+     */
+    public void executeSpeechRecognitionStep(AudioReadyMessage audio) throws Exception {
+        logger.info("步骤3: 语音识别 {}", audio.wavFileName());
+        pipelineTracer.record(PipelineTracer.STAGE_ASR_QUEUE, audio.wavFileName(), System.currentTimeMillis() - audio.convertedAt());
+        long startNanos = System.nanoTime();
+        Path wavFilePath = Paths.get(CONVERTED_AUDIO_FOLDER, audio.wavFileName());
+        // 同名文件被覆盖或写了一半时不识别，交给重试
+        if (!audio.contentHash().equals(TranscriptCache.sha256(wavFilePath))) {
+            throw new IOException("WAV文件内容与消息不一致: " + audio.wavFileName());
+        }
+        String text = speechRecognitionService.recognizeSpeech(wavFilePath.toString());
+        completeRecognition(audio.wavFileName(), text, startNanos, audio.detectedAt());
+        if (deleteWavAfterRecognition) {
+            // 识别结果已入库，WAV文件不再需要，避免转换目录无限增长
+            Files.deleteIfExists(wavFilePath);
+        }
+    }
+
+    /**
+     * 保存识别结果并记录从发现新作品到此刻的总耗时，有文字时发送到关键词提取队列
+     */
+    private void completeRecognition(String source, String text, long startNanos, long detectedAt) {
+        Transcript transcript = transcriptRepository.save(
+                new Transcript(source, text, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        pipelineTracer.complete(source, detectedAt);
+        if (text == null || text.isBlank()) {
+            logger.info("未识别到语音，不进入下一阶段: {}", source);
+            return;
+        }
+        //通知识别完成
+        pipelineMessaging.publishText(mqConfig.QUEUE_BaiduApi_TO_TextExtract, text);
+        logger.info("步骤3完成: {} -> transcript#{}", source, transcript.getId());
     }
-}
\ No newline at end of file
+}
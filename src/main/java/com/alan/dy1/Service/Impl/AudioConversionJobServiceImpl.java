@@ -0,0 +1,105 @@
+package com.alan.dy1.Service.Impl;
+
+import com.alan.dy1.Service.AudioConversionJobService;
+import com.alan.dy1.Service.AudioConversionService;
+import com.alan.dy1.domain.ConversionJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class AudioConversionJobServiceImpl implements AudioConversionJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioConversionJobServiceImpl.class);
+
+    @Autowired
+    private AudioConversionService audioConversionService;
+
+    @Autowired
+    @Qualifier("downloadAudioExecutor")
+    private Executor downloadAudioExecutor;
+
+    // 最多保留的任务数，超出后清理已完成的任务
+    @Value("${audio.convert.job-history:50}")
+    private int jobHistory;
+
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public ConversionJob submit(String sourceDir) throws IOException {
+        File dir = new File(sourceDir);
+        if (!dir.exists() || !dir.isDirectory()) {
+            throw new IOException("指定的目录不存在或不是一个目录: " + sourceDir);
+        }
+        File[] mp3Files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".mp3"));
+        List<String> fileNames = mp3Files == null ? List.of() : Arrays.stream(mp3Files).map(File::getName).toList();
+
+        ConversionJob job = new ConversionJob(UUID.randomUUID().toString(), sourceDir, fileNames);
+        evictFinishedJobs();
+        jobs.put(job.getJobId(), job);
+        logger.info("提交批量转换任务 {}，共 {} 个文件", job.getJobId(), fileNames.size());
+
+        // 每个文件一个任务，由线程池并行转换；在请求线程上提交，不占用线程池的线程
+        // 队列满时按线程池的拒绝策略处理：caller-runs由请求线程自己转换，abort时该文件记为失败，任务仍能结束
+        for (String fileName : fileNames) {
+            try {
+                downloadAudioExecutor.execute(() -> convert(job, fileName));
+            } catch (RejectedExecutionException e) {
+                logger.warn("批量转换任务 {} 的文件 {} 提交被拒绝: {}", job.getJobId(), fileName, e.getMessage());
+                finished(job, fileName, 0, "线程池已满，转换任务提交被拒绝");
+            }
+        }
+        return job;
+    }
+
+    @Override
+    public ConversionJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void convert(ConversionJob job, String fileName) {
+        job.started(fileName);
+        long startNanos = System.nanoTime();
+        String error = null;
+        try {
+            audioConversionService.convertMp3ToWav(job.getSourceDir(), fileName);
+        } catch (Exception e) {
+            error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+        finished(job, fileName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), error);
+    }
+
+    private void finished(ConversionJob job, String fileName, long elapsedMillis, String error) {
+        if (job.finished(fileName, elapsedMillis, error)) {
+            logger.info("批量转换任务 {} 完成，共 {} 个，失败 {} 个，耗时 {}ms",
+                    job.getJobId(), job.getTotal(), job.getFailed(), job.getElapsedMillis());
+        }
+    }
+
+    /**
+     * 任务数达到上限时清理已完成的任务，进行中的任务不清理
+     */
+    private void evictFinishedJobs() {
+        Iterator<ConversionJob> iterator = jobs.values().iterator();
+        while (jobs.size() >= jobHistory && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package com.alan.dy1.Service.Impl;
 
 import com.alan.dy1.Service.AudioConversionService;
+import com.alan.dy1.audio.PcmAudio;
+import com.alan.dy1.audio.PcmBufferPool;
+import com.alan.dy1.audio.SilenceTrimmer;
+import com.alan.dy1.trace.PipelineTracer;
+import com.alan.dy1.util.ConcurrencyLimiter;
+import jakarta.annotation.PostConstruct;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 
 /**
  * 音频转换服务实现类
@@ -28,6 +46,43 @@ public class AudioConversionServiceImpl implements AudioConversionService {
     private static final int TARGET_SAMPLE_RATE = 16000; // 16kHz采样率
     private static final int TARGET_CHANNELS = 1;        // 单声道
     
+    // 沿用源文件编码
+    private static final int SOURCE_CODEC = -1;
+    
+    // 网络读取缓冲大小
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    
+    @Autowired
+    private PcmBufferPool pcmBufferPool;
+    
+    @Autowired
+    private SilenceTrimmer silenceTrimmer;
+    
+    @Autowired
+    private PipelineTracer pipelineTracer;
+    
+    @Value("${audio.stream.connect-timeout-ms:10000}")
+    private int connectTimeoutMillis;
+    
+    @Value("${audio.stream.read-timeout-ms:30000}")
+    private int readTimeoutMillis;
+    
+    // 解码器回退读取时最多保留的字节数，文件头在末尾的MP4需要回退到开头
+    @Value("${audio.stream.max-buffer-bytes:67108864}")
+    private int maxBufferBytes;
+    
+    // 同时进行的FFmpeg解码/转码数，解码受CPU限制，0表示按CPU核数
+    @Value("${audio.ffmpeg.max-concurrent:0}")
+    private int maxConcurrentDecodes;
+    
+    private ConcurrencyLimiter decodeLimiter;
+    
+    @PostConstruct
+    public void init() {
+        int limit = maxConcurrentDecodes > 0 ? maxConcurrentDecodes : Runtime.getRuntime().availableProcessors();
+        decodeLimiter = new ConcurrencyLimiter("ffmpeg", limit);
+    }
+    
     @Override
     public void convertMp3ToWav(String sourceDir, String fileName) throws IOException {
         // 创建目标目录
@@ -49,7 +104,8 @@ public class AudioConversionServiceImpl implements AudioConversionService {
             throw new IOException("文件不是MP3格式: " + fileName);
         }
         
-        try {
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_CONVERSION, fileName);
+             ConcurrencyLimiter.Permit permit = acquireDecoder()) {
             // 转换单个文件
             convertSingleFile(sourceFilePath.toString(), CONVERTED_AUDIO_FOLDER);
             
@@ -71,8 +127,151 @@ public class AudioConversionServiceImpl implements AudioConversionService {
         logger.info("成功转换文件: {} -> {}", mp3File.getName(), wavFileName);
     }
     
+    @Override
+    public String convertStreamToWav(String mediaUrl, Map<String, String> headers, String name) throws IOException {
+        Path targetPath = Paths.get(CONVERTED_AUDIO_FOLDER);
+        if (!Files.exists(targetPath)) {
+            Files.createDirectories(targetPath);
+        }
+        String wavFileName = name + ".wav";
+        Path wavFilePath = targetPath.resolve(wavFileName);
+        
+        // 先取得解码许可再建立连接，排队期间连接不会因读超时断开；计时包括排队和下载
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_CONVERSION, wavFileName);
+             ConcurrencyLimiter.Permit permit = acquireDecoder()) {
+            HttpURLConnection connection = openMedia(mediaUrl, headers);
+            try {
+                // 抓取器直接读取网络流，边下载边解码
+                try (InputStream in = new BufferedInputStream(connection.getInputStream(), STREAM_BUFFER_SIZE)) {
+                    FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(in, maxBufferBytes);
+                    transcode(grabber, wavFilePath.toString(), avcodec.AV_CODEC_ID_PCM_S16LE);
+                }
+                logger.info("成功流式转换: {} -> {}", mediaUrl, wavFileName);
+                return wavFileName;
+            } catch (Exception e) {
+                // 不留下写了一半的文件
+                Files.deleteIfExists(wavFilePath);
+                logger.error("流式转换失败: " + mediaUrl, e);
+                throw e instanceof IOException ? (IOException) e : new IOException("流式转换失败: " + mediaUrl, e);
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+    
+    @Override
+    public PcmAudio decodeStreamToPcm(String mediaUrl, Map<String, String> headers) throws IOException {
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_CONVERSION, mediaUrl);
+             ConcurrencyLimiter.Permit permit = acquireDecoder()) {
+            HttpURLConnection connection = openMedia(mediaUrl, headers);
+            try (InputStream in = new BufferedInputStream(connection.getInputStream(), STREAM_BUFFER_SIZE)) {
+                return decodeToPcm(new FFmpegFrameGrabber(in, maxBufferBytes));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("解码音频失败: " + mediaUrl, e);
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+    
+    @Override
+    public PcmAudio decodeFileToPcm(String filePath) throws IOException {
+        if (!Files.exists(Paths.get(filePath))) {
+            throw new IOException("源文件不存在: " + filePath);
+        }
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_DECODE, filePath);
+             ConcurrencyLimiter.Permit permit = acquireDecoder()) {
+            return decodeToPcm(new FFmpegFrameGrabber(filePath));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("解码音频失败: " + filePath, e);
+        }
+    }
+    
+    /**
+     * 解码为16kHz单声道s16le，直接写入池化的直接缓冲区，并移除静音
+     * 重采样由抓取器内部的swresample完成，不经过录制器和WAV容器
+     */
+    private PcmAudio decodeToPcm(FFmpegFrameGrabber grabber) throws Exception {
+        grabber.setSampleFormat(avutil.AV_SAMPLE_FMT_S16);
+        grabber.setSampleRate(TARGET_SAMPLE_RATE);
+        grabber.setAudioChannels(TARGET_CHANNELS);
+        ByteBuffer buffer = pcmBufferPool.acquire();
+        PcmAudio audio;
+        try {
+            grabber.start();
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                ShortBuffer samples = (ShortBuffer) frame.samples[0];
+                int bytes = samples.remaining() * 2;
+                buffer = pcmBufferPool.ensureRemaining(buffer, bytes);
+                // 缓冲区为小端序，写入的就是s16le
+                buffer.asShortBuffer().put(samples);
+                buffer.position(buffer.position() + bytes);
+            }
+            audio = pcmBufferPool.complete(buffer);
+        } catch (Exception e) {
+            pcmBufferPool.release(buffer);
+            throw e;
+        } finally {
+            grabber.stop();
+            grabber.release();
+        }
+        // 识别前去掉片头和较长的停顿，减少上传量和识别耗时
+        silenceTrimmer.trim(audio);
+        return audio;
+    }
+    
+    /**
+     * 打开音频地址，返回已确认状态码为2xx的连接
+     */
+    private HttpURLConnection openMedia(String mediaUrl, Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(mediaUrl).openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        headers.forEach(connection::setRequestProperty);
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            connection.disconnect();
+            throw new IOException("下载音频失败，HTTP状态码: " + status);
+        }
+        return connection;
+    }
+    
+    /**
+     * 获取一个解码许可，等待期间被中断时以InterruptedIOException抛出
+     */
+    private ConcurrencyLimiter.Permit acquireDecoder() throws IOException {
+        try {
+            return decodeLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待解码许可时被中断");
+        }
+    }
+    
+    /**
+     * 解码并发统计
+     */
+    @Override
+    public Map<String, Object> getDecodeStats() {
+        return decodeLimiter.getStats();
+    }
+    
     private void convertMp3ToWavFile(String inputFile, String outputFile) throws Exception {
-        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(inputFile);
+        transcode(new FFmpegFrameGrabber(inputFile), outputFile, SOURCE_CODEC);
+    }
+    
+    /**
+     * 逐帧读取并重采样为16kHz单声道写入WAV，结束后释放抓取器
+     * @param grabber 未启动的抓取器
+     * @param outputFile 输出文件
+     * @param audioCodec 输出编码，SOURCE_CODEC表示沿用源文件的编码和码率
+     */
+    private void transcode(FFmpegFrameGrabber grabber, String outputFile, int audioCodec) throws Exception {
         FFmpegFrameRecorder recorder = null;
         
         try {
@@ -82,15 +281,19 @@ public class AudioConversionServiceImpl implements AudioConversionService {
             // 初始化帧录制器
             recorder = new FFmpegFrameRecorder(outputFile, TARGET_CHANNELS);
             recorder.setSampleRate(TARGET_SAMPLE_RATE);
-            recorder.setAudioCodec(grabber.getAudioCodec());
-            recorder.setAudioBitrate(grabber.getAudioBitrate());
+            if (audioCodec == SOURCE_CODEC) {
+                recorder.setAudioCodec(grabber.getAudioCodec());
+                recorder.setAudioBitrate(grabber.getAudioBitrate());
+            } else {
+                recorder.setAudioCodec(audioCodec);
+            }
             
             // 开始录制
             recorder.start();
             
-            // 逐帧读取并写入
+            // 只读取音频帧，MP4源中的视频帧直接跳过不解码
             Frame frame;
-            while ((frame = grabber.grab()) != null) {
+            while ((frame = grabber.grabSamples()) != null) {
                 recorder.record(frame);
                 if (frame != null) {
                     frame.close();
@@ -1,120 +1,258 @@
 package com.alan.dy1.Service.Impl;
 
 import com.alan.dy1.Service.AudioService;
+import com.alan.dy1.process.ProcessResult;
+import com.alan.dy1.process.ProcessRunner;
+import com.alan.dy1.process.ProcessTimeoutException;
+import com.alan.dy1.worker.PythonWorkerPool;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class AudioServiceImpl implements AudioService {
     
     private static final Logger logger = LoggerFactory.getLogger(AudioServiceImpl.class);
-    private static final String PYTHON_SCRIPT_PATH = "douyin_tools/get_audio_from_url.py";
+    private static final String SCRIPT_NAME = "get_audio_from_url.py";
+    
+    @Autowired
+    private ProcessRunner processRunner;
+    
+    @Value("${python.command:python}")
+    private String pythonCommand;
+    
+    // 脚本所在目录，相对于工作目录
+    @Value("${python.script-dir:douyin_tools}")
+    private String scriptDir;
+    
+    // 单次调用的截止时间
+    @Value("${python.process.timeout-ms:180000}")
+    private long processTimeoutMillis;
+    
+    @Autowired
+    @Qualifier("audioWorkerPool")
+    private PythonWorkerPool workerPool;
+    
+    // 是否使用常驻worker池，关闭时退回每次调用启动一个Python进程
+    @Value("${python.worker.enabled:true}")
+    private boolean workerEnabled;
     
     @Override
-    public ResponseEntity<Map<String, Object>> downloadAndConvertAudio(String url) {
+    public ResponseEntity<Map<String, Object>> downloadAndConvertAudio(String url, int count) {
+        return runAudioScript(url, count, false);
+    }
+    
+    @Override
+    public ResponseEntity<Map<String, Object>> resolveAudioUrls(String url, int count) {
+        return runAudioScript(url, count, true);
+    }
+    
+    /**
+     * 调用音频脚本，一次打开主页取回最新count个作品
+     * @param resolveOnly 为true时脚本只返回音频地址，不写磁盘
+     */
+    private ResponseEntity<Map<String, Object>> runAudioScript(String url, int count, boolean resolveOnly) {
+        if (workerEnabled) {
+            return downloadAudioFromWorker(url, count, resolveOnly);
+        }
+        
         Map<String, Object> response = new HashMap<>();
         
         try {
             // 检查Python脚本是否存在
-            File scriptFile = new File(PYTHON_SCRIPT_PATH);
+            String scriptPath = scriptDir + "/" + SCRIPT_NAME;
+            File scriptFile = new File(scriptPath);
             if (!scriptFile.exists()) {
                 // 尝试使用绝对路径
-                String absolutePath = new File("../" + PYTHON_SCRIPT_PATH).getAbsolutePath();
+                String absolutePath = new File("../" + scriptPath).getAbsolutePath();
                 scriptFile = new File(absolutePath);
                 if (!scriptFile.exists()) {
                     response.put("success", false);
-                    response.put("error", "Python脚本未找到: " + PYTHON_SCRIPT_PATH + " 或 " + absolutePath);
+                    response.put("error", "Python脚本未找到: " + scriptPath + " 或 " + absolutePath);
                     return ResponseEntity.badRequest().body(response);
                 }
             }
             
             // 构建命令，添加-j参数以JSON格式输出
-            ProcessBuilder processBuilder = new ProcessBuilder();
-            processBuilder.command("python", scriptFile.getAbsolutePath(), "-u", url, "-j");
-            
-            // 设置工作目录为脚本所在目录，确保依赖和资源文件可以正确加载
-            processBuilder.directory(scriptFile.getParentFile());
-            
-            // 添加环境变量以支持更好的网络连接
-            Map<String, String> environment = processBuilder.environment();
-            environment.put("PYTHONIOENCODING", "utf-8");
-            
-            // 启动进程
-            Process process = processBuilder.start();
-            
-            // 读取输出
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            
-            StringBuilder output = new StringBuilder();
-            StringBuilder errorOutput = new StringBuilder();
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
+            List<String> command = new ArrayList<>(List.of(pythonCommand, scriptFile.getAbsolutePath(), "-u", url, "-j",
+                    "-c", String.valueOf(count)));
+            if (resolveOnly) {
+                command.add("-r");
             }
             
-            String errorLine;
-            while ((errorLine = errorReader.readLine()) != null) {
-                errorOutput.append(errorLine).append("\n");
+            // 工作目录为脚本所在目录，确保依赖和资源文件可以正确加载
+            // stdout/stderr并发读取，超过截止时间会结束整个进程树，调用线程不会被卡死的子进程占住
+            CompletableFuture<ProcessResult> execution = processRunner.run(SCRIPT_NAME, command,
+                    scriptFile.getParentFile(), Map.of("PYTHONIOENCODING", "utf-8"), Duration.ofMillis(processTimeoutMillis));
+            ProcessResult result;
+            try {
+                result = execution.get();
+            } catch (InterruptedException e) {
+                // 调用线程被中断时取消执行，结束进程树
+                execution.cancel(true);
+                Thread.currentThread().interrupt();
+                throw e;
             }
             
-            int exitCode = process.waitFor();
+            String output = result.getStdout();
+            String errorOutput = result.getStderr();
+            int exitCode = result.getExitCode();
             
             if (exitCode == 0) {
                 // 成功执行，解析JSON输出
                 try {
                     ObjectMapper objectMapper = new ObjectMapper();
-                    JsonNode jsonNode = objectMapper.readTree(output.toString().trim());
-                    
-                    response.put("success", jsonNode.get("success").asBoolean());
-                    
-                    if (jsonNode.has("message")) {
-                        response.put("message", jsonNode.get("message").asText());
-                    }
-                    
-                    if (jsonNode.has("file_path")) {
-                        String filePath = jsonNode.get("file_path").asText();
-                        response.put("file_path", filePath);
-                        // 提取文件名并添加到响应中
-                        String fileName = new File(filePath).getName();
-                        response.put("file_name", fileName);
-                    }
-                    
-                    if (jsonNode.has("error")) {
-                        response.put("error", jsonNode.get("error").asText());
-                    }
+                    JsonNode jsonNode = objectMapper.readTree(output.trim());
+                    fillResponse(jsonNode, response, count);
                 } catch (Exception e) {
                     // JSON解析失败，返回原始输出
                     response.put("success", true);
-                    response.put("message", output.toString());
+                    response.put("message", output);
                 }
                 return ResponseEntity.ok(response);
             } else {
                 // 执行出错
                 response.put("success", false);
                 response.put("error", "Python脚本执行失败，退出码: " + exitCode);
-                response.put("details", errorOutput.toString());
-                response.put("command", "python " + scriptFile.getAbsolutePath() + " -u " + url);
+                response.put("details", errorOutput);
+                response.put("command", pythonCommand + " " + scriptFile.getAbsolutePath() + " -u " + url);
                 response.put("workingDirectory", scriptFile.getParentFile().getAbsolutePath());
                 return ResponseEntity.status(500).body(response);
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            response.put("success", false);
+            response.put("error", (cause instanceof ProcessTimeoutException ? "Python脚本执行超时: " : "执行过程中发生异常: ") + cause.getMessage());
+            response.put("exception", cause.getClass().getName());
+            return ResponseEntity.status(500).body(response);
+        } catch (InterruptedException e) {
             response.put("success", false);
             response.put("error", "执行过程中发生异常: " + e.getMessage());
             response.put("exception", e.getClass().getName());
             return ResponseEntity.status(500).body(response);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 通过常驻worker池下载音频
+     */
+    private ResponseEntity<Map<String, Object>> downloadAudioFromWorker(String url, int count, boolean resolveOnly) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ObjectNode request = workerPool.newRequest();
+            request.put("url", url);
+            request.put("count", count);
+            if (resolveOnly) {
+                request.put("resolve", true);
+            }
+            JsonNode jsonNode = workerPool.execute(request);
+            fillResponse(jsonNode, response, count);
+            return Boolean.TRUE.equals(response.get("success"))
+                    ? ResponseEntity.ok(response)
+                    : ResponseEntity.status(500).body(response);
+        } catch (IOException | TimeoutException e) {
+            response.put("success", false);
+            response.put("error", "worker执行失败: " + e.getMessage());
+            response.put("exception", e.getClass().getName());
+            return ResponseEntity.status(500).body(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.put("success", false);
+            response.put("error", "执行过程中被中断");
+            response.put("exception", e.getClass().getName());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
+    /**
+     * 将脚本输出的JSON写入响应
+     * 脚本下载多个作品时输出结果数组（worker模式下为results字段），此时第一个成功的文件作为file_name返回；
+     * 成功的作品少于requested个时success为false，已成功的作品仍在files中，由调用方决定如何处理
+     * @param requested 请求的作品数
+     */
+    private void fillResponse(JsonNode jsonNode, Map<String, Object> response, int requested) {
+        JsonNode results = jsonNode.isArray() ? jsonNode : jsonNode.get("results");
+        if (results == null || !results.isArray()) {
+            response.put("success", jsonNode.path("success").asBoolean(false));
+            
+            if (jsonNode.has("message")) {
+                response.put("message", jsonNode.get("message").asText());
+            }
+            
+            if (jsonNode.has("file_path")) {
+                String filePath = jsonNode.get("file_path").asText();
+                response.put("file_path", filePath);
+                // 提取文件名并添加到响应中
+                String fileName = new File(filePath).getName();
+                response.put("file_name", fileName);
+            }
+            
+            if (jsonNode.has("error")) {
+                response.put("error", jsonNode.get("error").asText());
+            }
+            return;
+        }
+        
+        List<Map<String, Object>> files = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (JsonNode result : results) {
+            if (result.path("success").asBoolean(false) && result.has("file_path")) {
+                String filePath = result.get("file_path").asText();
+                Map<String, Object> file = new HashMap<>();
+                file.put("file_path", filePath);
+                file.put("file_name", new File(filePath).getName());
+                file.put("video_url", result.path("video_url").asText(null));
+                files.add(file);
+            } else if (result.path("success").asBoolean(false) && result.has("media_url")) {
+                // 只解析地址的结果，由调用方直接流式读取
+                Map<String, Object> file = new HashMap<>();
+                file.put("media_url", result.get("media_url").asText());
+                file.put("name", result.path("name").asText(null));
+                Map<String, String> headers = new HashMap<>();
+                result.path("headers").fields().forEachRemaining(header -> headers.put(header.getKey(), header.getValue().asText()));
+                file.put("headers", headers);
+                file.put("video_url", result.path("video_url").asText(null));
+                files.add(file);
+            } else {
+                errors.add(result.path("error").asText("未知错误"));
+            }
+        }
+        if (files.size() < requested && errors.isEmpty()) {
+            // 脚本找到的作品比请求的少，没有逐个作品的错误信息
+            errors.add("只取回 " + files.size() + "/" + requested + " 个作品");
+        }
+        response.put("success", !files.isEmpty() && files.size() >= requested);
+        response.put("files", files);
+        response.put("requested", requested);
+        if (!files.isEmpty() && files.get(0).containsKey("media_url")) {
+            response.put("message", "成功解析 " + files.size() + " 个音频地址");
+        } else if (!files.isEmpty()) {
+            response.put("file_path", files.get(0).get("file_path"));
+            response.put("file_name", files.get(0).get("file_name"));
+            response.put("message", "成功下载 " + files.size() + " 个音频");
+        }
+        if (!errors.isEmpty()) {
+            response.put("error", String.join("; ", errors));
+        } else if (files.isEmpty() && jsonNode.has("error")) {
+            response.put("error", jsonNode.get("error").asText());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.alan.dy1.Service.Impl;
+
+import com.alan.dy1.Config.mqConfig;
+import com.alan.dy1.Service.CreatorCheckService;
+import com.alan.dy1.Service.GetWorkCountService;
+import com.alan.dy1.Service.PipelineIdempotencyService;
+import com.alan.dy1.domain.CheckOutcome;
+import com.alan.dy1.domain.Douyin;
+import com.alan.dy1.mq.NewWorksMessage;
+import com.alan.dy1.mq.PipelineMessaging;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.repository.CreatorStateBuffer;
+import com.alan.dy1.trace.PipelineTracer;
+import com.alan.dy1.trace.TraceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Service
+public class CreatorCheckServiceImpl implements CreatorCheckService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreatorCheckServiceImpl.class);
+
+    // 平均发布间隔的平滑系数，越大越偏向最近一次观测
+    private static final double INTERVAL_SMOOTHING = 0.3;
+
+    @Autowired
+    private GetWorkCountService getWorkCountService;
+
+    // 状态变化先写入缓冲，批量写回数据库
+    @Autowired
+    private CreatorStateBuffer creatorStateBuffer;
+
+    @Autowired
+    private CreatorCache creatorCache;
+
+    @Autowired
+    private PipelineMessaging pipelineMessaging;
+
+    @Autowired
+    private PipelineIdempotencyService pipelineIdempotencyService;
+
+    @Autowired
+    private PipelineTracer pipelineTracer;
+
+    // 下载阶段已满时检查线程最多等待的时间，超时的博主留到下次检查，不占住检查线程
+    @Value("${pipeline.backpressure.publish-timeout-ms:2000}")
+    private long publishTimeoutMillis;
+
+    @Override
+    public CheckOutcome checkCreator(Douyin douyin) {
+        String userUrl = douyin.getUrl();
+        int oldNumber = douyin.getWorkNumber();
+        ResponseEntity<Map<String, Object>> response = getWorkCountService.getUserWorksCount(userUrl);
+
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            logger.warn("获取作品数量失败: {} {}", userUrl, response.getBody());
+            return CheckOutcome.FAILED;
+        }
+        Integer worksCount = parseWorksCount(response.getBody().get("number"));
+        if (worksCount == null) {
+            logger.warn("无法解析作品数量: {} {}", userUrl, response.getBody());
+            return CheckOutcome.FAILED;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        douyin.setLastCheckedAt(now);
+
+        // 业务逻辑处理
+        if (worksCount > oldNumber) {
+            // 处理有新作品的情况
+            // 作品数在下载阶段完成后才推进，这里只记录检查状态
+            CheckOutcome outcome = publishNewWorks(douyin, worksCount);
+            if (outcome == CheckOutcome.NEW_WORKS) {
+                // 同一批新作品只在第一次发布时计入发布间隔
+                recordNewWorks(douyin, worksCount - oldNumber, now);
+            }
+            saveState(douyin, false);
+            return outcome;
+        } else if (worksCount < oldNumber) {
+            // 处理删作品的情况
+            douyin.setWorkNumber(worksCount);
+            saveState(douyin, true);
+            // 之后的新作品会回到已处理过的作品数，清掉这些记录，否则新作品会被当作已处理跳过
+            pipelineIdempotencyService.forgetAbove(douyin.getId(), worksCount);
+            return CheckOutcome.DELETED_WORKS;
+        }
+        // 处理无新作品情况
+        saveState(douyin, false);
+        logger.debug("无新作品: {}", userUrl);
+        return CheckOutcome.UNCHANGED;
+    }
+
+    /**
+     * 记录检查状态：写入批量写回缓冲，并同步到缓存中的博主
+     * douyin是缓存给出的副本，只同步检查相关的字段，避免覆盖下载阶段同时推进的作品数
+     * @param withWorkNumber 作品数是否由本次检查改变（删作品）
+     */
+    private void saveState(Douyin douyin, boolean withWorkNumber) {
+        if (withWorkNumber) {
+            creatorStateBuffer.addWithWorkNumber(douyin);
+        } else {
+            creatorStateBuffer.add(douyin);
+        }
+        creatorCache.update(douyin.getId(), cached -> {
+            cached.setLastCheckedAt(douyin.getLastCheckedAt());
+            cached.setLastChangedAt(douyin.getLastChangedAt());
+            cached.setAvgPostIntervalSeconds(douyin.getAvgPostIntervalSeconds());
+            if (withWorkNumber) {
+                cached.setWorkNumber(douyin.getWorkNumber());
+            }
+        });
+    }
+
+    /**
+     * 发送下载任务，同一博主同一作品数的任务还在处理中时不重复发送
+     * 下载阶段已满时最多等待pipeline.backpressure.publish-timeout-ms，仍未发送则留到下次检查
+     * @return 已发送返回NEW_WORKS，未发送返回DEFERRED
+     */
+    private CheckOutcome publishNewWorks(Douyin douyin, int worksCount) {
+        // 带上已处理的作品数，下载阶段按差值一次取回全部新作品
+        NewWorksMessage message = new NewWorksMessage(douyin.getId(), douyin.getUrl(), douyin.getWorkNumber(), worksCount,
+                System.currentTimeMillis());
+        String key = message.messageId();
+        if (!pipelineIdempotencyService.tryEnqueue(key)) {
+            logger.debug("下载任务处理中，跳过: {}", key);
+            return CheckOutcome.DEFERRED;
+        }
+        // 从这里开始追踪这批新作品，追踪id随消息头传到下载和识别阶段
+        String traceId = pipelineTracer.start(douyin.getId(), douyin.getUrl(), message.detectedAt());
+        try (TraceContext.Scope scope = TraceContext.open(traceId)) {
+            if (pipelineMessaging.tryPublish(mqConfig.QUEUE_NEW_TO_DownloadAndChange, message, publishTimeoutMillis)) {
+                return CheckOutcome.NEW_WORKS;
+            }
+            logger.info("下载阶段已满，留到下次检查: {}", key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pipelineTracer.discard(traceId);
+        pipelineIdempotencyService.release(key);
+        return CheckOutcome.DEFERRED;
+    }
+
+    /**
+     * 根据本次发现的新作品更新平均发布间隔
+     * 两次发现之间的时间按新作品数均摊，再做指数平滑
+     */
+    private void recordNewWorks(Douyin douyin, int newWorks, LocalDateTime now) {
+        LocalDateTime lastChangedAt = douyin.getLastChangedAt();
+        if (lastChangedAt != null) {
+            long observed = Duration.between(lastChangedAt, now).getSeconds() / Math.max(1, newWorks);
+            Long average = douyin.getAvgPostIntervalSeconds();
+            douyin.setAvgPostIntervalSeconds(average == null
+                    ? observed
+                    : Math.round(average * (1 - INTERVAL_SMOOTHING) + observed * INTERVAL_SMOOTHING));
+        }
+        douyin.setLastChangedAt(now);
+    }
+
+    /**
+     * 解析脚本返回的作品数量，页面上可能显示为 "15" 或 "1.2万"
+     * @return 作品数量，无法解析时返回null
+     */
+    static Integer parseWorksCount(Object number) {
+        if (number == null) {
+            return null;
+        }
+        String text = number.toString().trim().replace(",", "");
+        try {
+            if (text.endsWith("万")) {
+                return new BigDecimal(text.substring(0, text.length() - 1)).multiply(BigDecimal.valueOf(10000)).intValue();
+            }
+            return Integer.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
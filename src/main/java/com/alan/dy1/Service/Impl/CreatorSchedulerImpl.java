@@ -0,0 +1,280 @@
+package com.alan.dy1.Service.Impl;
+
+import com.alan.dy1.Service.CreatorCheckService;
+import com.alan.dy1.Service.CreatorScheduler;
+import com.alan.dy1.domain.Douyin;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.util.RateLimiter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 博主自适应轮询调度实现
+ * 优先队列按下次到期时间排序，每个博主的检查间隔取平均发布间隔的若干分之一，
+ * 长时间未更新的博主间隔逐渐变长，并叠加随机抖动避免请求集中
+ */
+@Service
+public class CreatorSchedulerImpl implements CreatorScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreatorSchedulerImpl.class);
+
+    @Autowired
+    private CreatorCheckService creatorCheckService;
+
+    @Autowired
+    private CreatorCache creatorCache;
+
+    @Autowired
+    @Qualifier("getWorkCountExecutor")
+    private Executor getWorkCountExecutor;
+
+    // 与全量检查共用的检查速率限制
+    @Autowired
+    @Qualifier("creatorCheckBudget")
+    private RateLimiter budget;
+
+    @Value("${douyin.scheduler.enabled:true}")
+    private boolean enabled;
+
+    // 每分钟最多检查的博主数量
+    @Value("${douyin.scheduler.checks-per-minute:30}")
+    private int checksPerMinute;
+
+    // 同时检查的博主数量上限
+    @Value("${douyin.sweep.concurrency:${python.worker.pool-size:2}}")
+    private int concurrency;
+
+    // 每个发布间隔内检查几次
+    @Value("${douyin.scheduler.checks-per-post:4}")
+    private int checksPerPost;
+
+    @Value("${douyin.scheduler.min-interval-minutes:10}")
+    private long minIntervalMinutes;
+
+    @Value("${douyin.scheduler.max-interval-minutes:720}")
+    private long maxIntervalMinutes;
+
+    // 还没有发布记录的博主使用的检查间隔
+    @Value("${douyin.scheduler.default-interval-minutes:60}")
+    private long defaultIntervalMinutes;
+
+    // 随机抖动比例，0.1表示在间隔基础上±10%
+    @Value("${douyin.scheduler.jitter-ratio:0.1}")
+    private double jitterRatio;
+
+    @Value("${douyin.sweep.page-size:200}")
+    private int pageSize;
+
+    // 提交被线程池拒绝时，博主在一个调度周期后重新到期
+    @Value("${douyin.scheduler.tick-ms:5000}")
+    private long tickMillis;
+
+    private final PriorityQueue<ScheduledCreator> queue = new PriorityQueue<>(Comparator.comparingLong(ScheduledCreator::dueAtMillis));
+    private final Map<Integer, ScheduledCreator> scheduled = new HashMap<>();
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final AtomicLong checksStarted = new AtomicLong();
+    private final AtomicLong checksSkippedByBudget = new AtomicLong();
+
+    private Semaphore permits;
+    private volatile boolean loaded;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(concurrency);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${douyin.scheduler.tick-ms:5000}", initialDelayString = "${douyin.scheduler.initial-delay-ms:10000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        // 上一轮还没结束时跳过，避免重叠执行
+        if (!ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!loaded) {
+                reload();
+            }
+            long now = System.currentTimeMillis();
+            while (true) {
+                ScheduledCreator next;
+                synchronized (this) {
+                    next = queue.peek();
+                    if (next == null || next.dueAtMillis() > now) {
+                        return;
+                    }
+                    if (!permits.tryAcquire()) {
+                        return;
+                    }
+                    if (!budget.tryAcquire()) {
+                        permits.release();
+                        checksSkippedByBudget.incrementAndGet();
+                        return;
+                    }
+                    queue.poll();
+                }
+                if (!submitCheck(next.creatorId())) {
+                    // 线程池已满，本轮不再提交
+                    return;
+                }
+            }
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${douyin.scheduler.reload-interval-ms:600000}", initialDelayString = "${douyin.scheduler.reload-interval-ms:600000}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        int added = 0;
+        List<Douyin> page;
+        int lastId = 0;
+        do {
+            page = creatorCache.findPage(lastId, pageSize);
+            for (Douyin douyin : page) {
+                lastId = douyin.getId();
+                synchronized (this) {
+                    if (!scheduled.containsKey(douyin.getId())) {
+                        schedule(douyin.getId(), firstDueAt(douyin));
+                        added++;
+                    }
+                }
+            }
+        } while (page.size() == pageSize);
+        loaded = true;
+        logger.info("调度器加载博主完成，新增 {} 个，共 {} 个", added, scheduled.size());
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        ScheduledCreator next = queue.peek();
+        status.put("enabled", enabled);
+        status.put("scheduled", scheduled.size());
+        status.put("queued", queue.size());
+        status.put("inFlight", concurrency - permits.availablePermits());
+        status.put("nextDueInMillis", next == null ? null : Math.max(0, next.dueAtMillis() - System.currentTimeMillis()));
+        status.put("budgetRemaining", (int) budget.availablePermits());
+        status.put("checksPerMinute", checksPerMinute);
+        status.put("checksStarted", checksStarted.get());
+        status.put("checksDeferredByBudget", checksSkippedByBudget.get());
+        return status;
+    }
+
+    /**
+     * 提交一个博主的检查，完成后按其发布频率重新排队
+     * @return 线程池拒绝时返回false，博主在一个调度周期后重新到期
+     */
+    private boolean submitCheck(Integer creatorId) {
+        CompletableFuture<Douyin> check;
+        try {
+            check = CompletableFuture.supplyAsync(() -> {
+                Optional<Douyin> creator = creatorCache.findById(creatorId);
+                if (creator.isEmpty()) {
+                    return null;
+                }
+                creatorCheckService.checkCreator(creator.get());
+                return creator.get();
+            }, getWorkCountExecutor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            logger.warn("调度检查被线程池拒绝，稍后重试: {}", creatorId);
+            synchronized (this) {
+                // 博主已从队列取出但仍在scheduled中，不重新入队就再也不会被检查
+                schedule(creatorId, System.currentTimeMillis() + tickMillis);
+            }
+            return false;
+        }
+        checksStarted.incrementAndGet();
+        check.whenComplete((douyin, error) -> {
+            permits.release();
+            synchronized (this) {
+                if (error != null) {
+                    logger.error("调度检查博主失败: {}", creatorId, error);
+                    schedule(creatorId, System.currentTimeMillis() + withJitter(TimeUnit.MINUTES.toMillis(minIntervalMinutes)));
+                } else if (douyin == null) {
+                    // 博主已被删除，不再调度
+                    scheduled.remove(creatorId);
+                } else {
+                    schedule(creatorId, System.currentTimeMillis() + withJitter(intervalMillis(douyin)));
+                }
+            }
+        });
+        return true;
+    }
+
+    private void schedule(Integer creatorId, long dueAtMillis) {
+        ScheduledCreator entry = new ScheduledCreator(creatorId, dueAtMillis);
+        scheduled.put(creatorId, entry);
+        queue.add(entry);
+    }
+
+    /**
+     * 首次加载时的到期时间：按上次检查时间推算，从未检查过的博主在一个最小间隔内随机分散
+     */
+    private long firstDueAt(Douyin douyin) {
+        long now = System.currentTimeMillis();
+        if (douyin.getLastCheckedAt() == null) {
+            return now + ThreadLocalRandom.current().nextLong(TimeUnit.MINUTES.toMillis(minIntervalMinutes) + 1);
+        }
+        long lastChecked = douyin.getLastCheckedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.max(now, lastChecked + withJitter(intervalMillis(douyin)));
+    }
+
+    /**
+     * 计算检查间隔：取平均发布间隔与距上次更新时间中的较大者，除以每个发布间隔的检查次数，再限制在上下限之内
+     */
+    private long intervalMillis(Douyin douyin) {
+        long intervalSeconds;
+        if (douyin.getAvgPostIntervalSeconds() == null || douyin.getLastChangedAt() == null) {
+            intervalSeconds = TimeUnit.MINUTES.toSeconds(defaultIntervalMinutes);
+        } else {
+            long sinceLastChange = Duration.between(douyin.getLastChangedAt(), LocalDateTime.now()).getSeconds();
+            intervalSeconds = Math.max(douyin.getAvgPostIntervalSeconds(), sinceLastChange) / Math.max(1, checksPerPost);
+        }
+        long min = TimeUnit.MINUTES.toSeconds(minIntervalMinutes);
+        long max = TimeUnit.MINUTES.toSeconds(maxIntervalMinutes);
+        return TimeUnit.SECONDS.toMillis(Math.min(max, Math.max(min, intervalSeconds)));
+    }
+
+    private long withJitter(long intervalMillis) {
+        double factor = jitterRatio > 0 ? 1 + ThreadLocalRandom.current().nextDouble(-jitterRatio, jitterRatio) : 1;
+        return Math.max(0, Math.round(intervalMillis * factor));
+    }
+
+    /**
+     * 队列中的一项：博主id和下次到期时间
+     */
+    private record ScheduledCreator(Integer creatorId, long dueAtMillis) {
+    }
+}
@@ -2,11 +2,23 @@ package com.alan.dy1.Service.Impl;
 
 import com.alan.dy1.Service.DouyinDataService;
 import com.alan.dy1.domain.Douyin;
+import com.alan.dy1.repository.CreatorCache;
 import com.alan.dy1.repository.DouyinRepository;
+import com.alan.dy1.util.CreatorUrls;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class DouyinDataServiceImpl implements DouyinDataService {
@@ -14,14 +26,74 @@ public class DouyinDataServiceImpl implements DouyinDataService {
     @Autowired
     private DouyinRepository douyinRepository;
     
+    @Autowired
+    private CreatorCache creatorCache;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @Override
     public String saveDouyinData(Douyin douyin) {
-        douyinRepository.save(douyin);
+        douyin.setUrl(CreatorUrls.normalize(douyin.getUrl()));
+        // 新增时先在缓存中检查URL是否重复
+        if (douyin.getId() == null && creatorCache.findByUrl(douyin.getUrl()).isPresent()) {
+            return "duplicate";
+        }
+        Douyin saved;
+        try {
+            saved = douyinRepository.save(douyin);
+        } catch (DataIntegrityViolationException e) {
+            // 缓存没有看到其他途径写入的同一URL，由唯一索引拦下；其他约束错误照常抛出
+            if (douyin.getId() == null && douyinRepository.findByUrl(douyin.getUrl()).isPresent()) {
+                creatorCache.invalidateAll();
+                return "duplicate";
+            }
+            throw e;
+        }
+        creatorCache.put(saved);
         return "success";
     }
     
+    @Override
+    public String saveAllDouyinData(List<Douyin> douyins) {
+        // 去掉与已有数据或本批内部重复的URL
+        List<Douyin> toInsert = new ArrayList<>(douyins.size());
+        Set<String> seenUrls = new HashSet<>();
+        for (Douyin douyin : douyins) {
+            douyin.setUrl(CreatorUrls.normalize(douyin.getUrl()));
+            if (seenUrls.add(douyin.getUrl()) && creatorCache.findByUrl(douyin.getUrl()).isEmpty()) {
+                toInsert.add(douyin);
+            }
+        }
+        int rows;
+        try {
+            rows = douyinRepository.batchInsert(toInsert);
+        } finally {
+            // 批量插入拿不到新id，让缓存回到数据库重新加载；插入失败时同样失效，缓存可能已落后于数据库
+            creatorCache.invalidateAll();
+        }
+        return "success: " + rows + ", duplicate: " + (douyins.size() - toInsert.size());
+    }
+    
     @Override
     public List<Douyin> getAllDouyinData() {
         return douyinRepository.findAll();
     }
-}
\ No newline at end of file
+    
+    @Override
+    public List<Douyin> getDouyinDataPage(Integer afterId, int size) {
+        return douyinRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllDouyinData(Consumer<Douyin> consumer) {
+        try (Stream<Douyin> stream = douyinRepository.streamAllOrderById()) {
+            stream.forEach(douyin -> {
+                consumer.accept(douyin);
+                // 处理完立即从持久化上下文移除，避免一级缓存随数据量增长
+                entityManager.detach(douyin);
+            });
+        }
+    }
+}
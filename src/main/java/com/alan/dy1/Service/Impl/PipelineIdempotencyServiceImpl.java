@@ -0,0 +1,226 @@
+package com.alan.dy1.Service.Impl;
+
+import com.alan.dy1.Service.PipelineIdempotencyService;
+import com.alan.dy1.asr.TranscriptCache;
+import com.alan.dy1.domain.ProcessedMessage;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.repository.DouyinRepository;
+import com.alan.dy1.repository.ProcessedMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流水线消息去重实现
+ * 发布端用带过期时间的内存集合抑制处理中的重复消息，消费端用processed_message表跳过已完成的消息
+ */
+@Service
+public class PipelineIdempotencyServiceImpl implements PipelineIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineIdempotencyServiceImpl.class);
+
+    // 作品地址中的作品id
+    private static final Pattern WORK_ID = Pattern.compile("/video/(\\d+)");
+
+    @Autowired
+    private ProcessedMessageRepository processedMessageRepository;
+
+    @Autowired
+    private DouyinRepository douyinRepository;
+
+    @Autowired
+    private CreatorCache creatorCache;
+
+    // 处理中的消息键保留时长，需覆盖下载转换耗时和全部重试等待，进入死信队列的消息过期后可被重新发布
+    @Value("${pipeline.idempotency.in-flight-ttl-ms:1800000}")
+    private long inFlightTtlMillis;
+
+    // processed_message表的保留天数
+    @Value("${pipeline.idempotency.retention-days:30}")
+    private int retentionDays;
+
+    // 消息键 -> 过期时间
+    private final Map<String, Long> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong skippedWorks = new AtomicLong();
+    private final AtomicLong forgotten = new AtomicLong();
+    private final AtomicLong purged = new AtomicLong();
+
+    @Override
+    public boolean tryEnqueue(String key) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + inFlightTtlMillis;
+        // 不存在或已过期时写入新的过期时间，否则保留原值；是否由本线程写入在compute内记下，不按返回值推断
+        boolean[] registered = new boolean[1];
+        inFlight.compute(key, (k, current) -> {
+            if (current != null && current > now) {
+                return current;
+            }
+            registered[0] = true;
+            return expiresAt;
+        });
+        (registered[0] ? enqueued : suppressed).incrementAndGet();
+        return registered[0];
+    }
+
+    @Override
+    public void release(String key) {
+        inFlight.remove(key);
+    }
+
+    @Override
+    public boolean isProcessed(String key) {
+        if (processedMessageRepository.existsById(key)) {
+            skipped.incrementAndGet();
+            inFlight.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public void completeDownload(String key, Integer creatorId, int workNumber) {
+        processedMessageRepository.save(new ProcessedMessage(key));
+        advance(key, creatorId, workNumber);
+    }
+
+    @Override
+    @Transactional
+    public void advanceWorkNumber(Integer creatorId, int workNumber) {
+        advance(null, creatorId, workNumber);
+    }
+
+    /**
+     * 在当前事务中推进作品数，提交成功后再更新内存中的博主，避免回滚后下次检查漏掉新作品
+     * @param key 完成的消息键，提交后移出处理中集合；为null时只推进作品数
+     */
+    private void advance(String key, Integer creatorId, int workNumber) {
+        douyinRepository.advanceWorkNumber(creatorId, workNumber);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                creatorCache.update(creatorId, douyin -> {
+                    if (douyin.getWorkNumber() < workNumber) {
+                        douyin.setWorkNumber(workNumber);
+                    }
+                });
+                if (key != null) {
+                    inFlight.remove(key);
+                    logger.info("下载阶段完成: {} 作品数推进到 {}", key, workNumber);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isWorkPublished(Integer creatorId, String videoUrl) {
+        if (videoUrl != null && processedMessageRepository.existsById(workKey(creatorId, videoUrl))) {
+            skippedWorks.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void markWorkPublished(Integer creatorId, String videoUrl) {
+        if (videoUrl != null) {
+            processedMessageRepository.save(new ProcessedMessage(workKey(creatorId, videoUrl)));
+        }
+    }
+
+    /**
+     * 作品的消息键：博主id:w:作品id，取不到作品id时用作品地址的哈希
+     * 不是"博主id:数字"的格式，删作品时的清理不会误删
+     */
+    private static String workKey(Integer creatorId, String videoUrl) {
+        Matcher matcher = WORK_ID.matcher(videoUrl);
+        String workId = matcher.find() ? matcher.group(1)
+                : TranscriptCache.sha256(ByteBuffer.wrap(videoUrl.getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+        return creatorId + ":w:" + workId;
+    }
+
+    @Override
+    @Transactional
+    public void forgetAbove(Integer creatorId, int workNumber) {
+        String prefix = creatorId + ":";
+        List<String> stale = new ArrayList<>();
+        for (String key : processedMessageRepository.findKeysByPrefix(prefix)) {
+            if (targetCount(key, prefix) > workNumber) {
+                stale.add(key);
+            }
+        }
+        if (!stale.isEmpty()) {
+            processedMessageRepository.deleteAllByIdInBatch(stale);
+            forgotten.addAndGet(stale.size());
+            logger.info("博主 {} 作品数减少到 {}，清理已处理记录 {}", creatorId, workNumber, stale);
+        }
+    }
+
+    /**
+     * 消息键中的目标作品数，格式不符时返回-1
+     */
+    private static int targetCount(String key, String prefix) {
+        try {
+            return Integer.parseInt(key.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 定期清理过期的处理中消息键
+     */
+    @Scheduled(fixedDelayString = "${pipeline.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        inFlight.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    /**
+     * 定期清理超过保留期的已处理记录，保留期需远长于消息在队列和重试中停留的时间
+     */
+    @Scheduled(fixedDelayString = "${pipeline.idempotency.retention-purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeProcessed() {
+        int removed = processedMessageRepository.deleteCompletedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (removed > 0) {
+            purged.addAndGet(removed);
+            logger.info("清理 {} 天前的已处理记录 {} 条", retentionDays, removed);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("enqueued", enqueued.get());
+        stats.put("suppressed", suppressed.get());
+        stats.put("skippedProcessed", skipped.get());
+        stats.put("skippedPublishedWorks", skippedWorks.get());
+        stats.put("forgottenAfterDeletion", forgotten.get());
+        stats.put("purgedProcessed", purged.get());
+        return stats;
+    }
+}
@@ -3,15 +3,45 @@ package com.alan.dy1.Service.Impl;
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
 import com.alibaba.fastjson.JSONObject;
+import com.alan.dy1.Service.AudioConversionService;
 import com.alan.dy1.Service.SpeechRecognitionService;
-import org.apache.commons.codec.binary.Base64;
+import com.alan.dy1.asr.AsrException;
+import com.alan.dy1.asr.AsrRequestBody;
+import com.alan.dy1.asr.AudioSegment;
+import com.alan.dy1.asr.AudioSegmenter;
+import com.alan.dy1.asr.TranscriptCache;
+import com.alan.dy1.asr.TranscriptStitcher;
+import com.alan.dy1.audio.PcmAudio;
+import com.alan.dy1.audio.SilenceTrimmer;
+import com.alan.dy1.audio.WavPcm;
+import com.alan.dy1.trace.PipelineTracer;
+import com.alan.dy1.util.ConcurrencyLimiter;
+import com.alan.dy1.util.RateLimiter;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 语音识别服务实现类（修正鉴权逻辑）
@@ -32,16 +62,82 @@ public class SpeechRecognitionServiceImpl implements SpeechRecognitionService {
     @Value("${baidu.mac-address:your_mac-address}")
     private String macAddress;
     
-    // 鉴权接口URL（获取Access Token）
-    private static final String ACCESS_TOKEN_URL = "https://aip.baidubce.com/oauth/2.0/token?grant_type=client_credentials&client_id=%s&client_secret=%s";
+    @Value("${baidu.asr.connect-timeout-ms:10000}")
+    private int connectTimeoutMillis;
+    
+    @Value("${baidu.asr.read-timeout-ms:60000}")
+    private int readTimeoutMillis;
+    
+    // 短语音接口最长60秒，单段留出余量
+    @Value("${baidu.asr.max-segment-seconds:50}")
+    private long maxSegmentSeconds;
+    
+    // 在段尾往前多长范围内寻找静音切点
+    @Value("${baidu.asr.silence-search-ms:5000}")
+    private long silenceSearchMillis;
+    
+    // 相邻两段的重叠时长
+    @Value("${baidu.asr.segment-overlap-ms:300}")
+    private long segmentOverlapMillis;
+    
+    // 单段识别失败后的重试次数
+    @Value("${baidu.asr.segment-retries:2}")
+    private int segmentRetries;
+    
+    @Autowired
+    @Qualifier("baiduApiExecutor")
+    private Executor baiduApiExecutor;
+    
+    @Autowired
+    private AudioConversionService audioConversionService;
+    
+    @Autowired
+    private SilenceTrimmer silenceTrimmer;
+    
+    @Autowired
+    private TranscriptCache transcriptCache;
+    
+    @Autowired
+    private PipelineTracer pipelineTracer;
+    
+    // 识别接口每秒最多调用次数，所有消费者和分段共用
+    @Value("${baidu.asr.qps:5}")
+    private int asrQps;
+    
+    // 同时在途的识别请求数，QPS只限制发起速度，单个请求耗时长时在途请求仍会堆积
+    @Value("${baidu.asr.max-concurrent-requests:8}")
+    private int maxConcurrentRequests;
+    
+    private AudioSegmenter segmenter;
+    private RateLimiter asrRateLimiter;
+    private ConcurrencyLimiter asrRequestLimiter;
+    
+    // 鉴权接口URL（获取Access Token），压测时可指向本地的模拟服务
+    @Value("${baidu.token-url:https://aip.baidubce.com/oauth/2.0/token}")
+    private String accessTokenUrl;
     // 语音识别接口URL
-    private static final String ASR_URL = "https://vop.baidu.com/server_api";
+    @Value("${baidu.asr.url:https://vop.baidu.com/server_api}")
+    private String asrUrl;
+    
+    private static final String ACCESS_TOKEN_QUERY = "?grant_type=client_credentials&client_id=%s&client_secret=%s";
 
     // 缓存Access Token（有效期30天，避免重复请求）
     private String accessToken;
     // Token过期时间（毫秒）
     private long tokenExpireTime;
     
+    @PostConstruct
+    public void init() {
+        segmenter = new AudioSegmenter(maxSegmentSeconds * 1000, silenceSearchMillis, segmentOverlapMillis);
+        asrRateLimiter = new RateLimiter(asrQps, 1, TimeUnit.SECONDS);
+        asrRequestLimiter = new ConcurrencyLimiter("baidu-asr", maxConcurrentRequests);
+    }
+    
+    @Override
+    public Map<String, Object> getRequestConcurrencyStats() {
+        return asrRequestLimiter.getStats();
+    }
+    
     @Override
     public String recognizeSpeech(String audioFilePath) throws Exception {
         // 1. 读取本地音频文件（WAV格式，16k采样率、单声道、16bit位深）
@@ -50,26 +146,195 @@ public class SpeechRecognitionServiceImpl implements SpeechRecognitionService {
             throw new RuntimeException("音频文件不存在：" + audioFilePath);
         }
         
-        // 2. 音频文件转 Base64 编码
-        String base64Audio = encodeFileToBase64(audioFile);
-        long audioLength = audioFile.length(); // 原始音频字节数（必填）
+        // 按WAV头判断格式和时长，超过单段时长的16kHz单声道PCM直接从文件分段读取，不整体解码
+        WavPcm wav = WavPcm.open(audioFile.toPath());
+        if (wav != null && !silenceTrimmer.isEnabled() && wav.getDurationMillis() > maxSegmentSeconds * 1000) {
+            return recognizeWav(audioFile.getName(), wav);
+        }
+        
+        // 需要去除静音，或不是16kHz单声道PCM的音频（如沿用MP3编码的WAV，无法从文件长度推算时长），
+        // 先整体解码为PCM，再按PCM时长决定是否分段
+        if (silenceTrimmer.isEnabled() || wav == null) {
+            try (PcmAudio audio = audioConversionService.decodeFileToPcm(audioFilePath)) {
+                if (audio.getTrimmedMillis() > 0) {
+                    logger.info("{} 去除静音 {}ms，剩余 {}ms", audioFile.getName(), audio.getTrimmedMillis(), audio.getDurationMillis());
+                }
+                return recognizePcm(audio.getData());
+            }
+        }
+        
+        // 2. 音频在发送时才分块读取并编码，不整体读入内存
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_RECOGNITION, audioFile.getName())) {
+            String audioHash = transcriptCache.isEnabled() ? TranscriptCache.audioHash(audioFile.toPath()) : null;
+            return transcriptCache.getOrRecognize(audioHash,
+                    () -> recognizeOnce(() -> callAsrApi(AsrRequestBody.ofFile(requestFields("wav"), audioFile.toPath())), audioFilePath));
+        }
+    }
+    
+    @Override
+    public String recognizePcm(ByteBuffer pcm) throws Exception {
+        if (!pcm.hasRemaining()) {
+            // 整段都是静音，无需调用接口
+            return "";
+        }
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_RECOGNITION, "pcm")) {
+            // 相同的PCM数据直接返回缓存的识别结果
+            String audioHash = transcriptCache.isEnabled() ? TranscriptCache.sha256(pcm) : null;
+            return transcriptCache.getOrRecognize(audioHash, () -> segmenter.needsSplit(pcm)
+                    ? recognizeSegments(segmenter.split(pcm).stream().map(segment -> (SegmentLoader) () -> segment).toList())
+                    : recognizeOnce(() -> callAsrApi(AsrRequestBody.ofBuffer(requestFields("pcm"), pcm)), "pcm"));
+        }
+    }
+    
+    /**
+     * 识别较长的WAV，按切分规则只读取各切点前的搜索窗口，每段在识别时才从文件读入
+     * 内存占用取决于同时识别的段数，与音频长度无关
+     */
+    private String recognizeWav(String name, WavPcm wav) throws Exception {
+        try (PipelineTracer.Span span = pipelineTracer.span(PipelineTracer.STAGE_RECOGNITION, name)) {
+            String audioHash = transcriptCache.isEnabled() ? TranscriptCache.sha256(wav) : null;
+            return transcriptCache.getOrRecognize(audioHash, () -> {
+                List<AudioSegmenter.Range> ranges = segmenter.plan(wav.getLength(), wav::read);
+                List<SegmentLoader> loaders = new ArrayList<>(ranges.size());
+                for (AudioSegmenter.Range range : ranges) {
+                    int index = loaders.size();
+                    loaders.add(() -> new AudioSegment(index, range.startMillis(), wav.read(range.offset(), range.length())));
+                }
+                return recognizeSegments(loaders);
+            });
+        }
+    }
+    
+    /**
+     * 各段在baiduApiExecutor上并行识别，按顺序拼接结果
+     * 调用线程先识别第一段，再认领还没开始执行的段，调用线程本身位于该线程池时也不会因互相等待而卡死
+     */
+    private String recognizeSegments(List<SegmentLoader> segments) throws Exception {
+        long startNanos = System.nanoTime();
+        List<SegmentTask> tasks = new ArrayList<>(segments.size());
+        for (SegmentLoader segment : segments) {
+            SegmentTask task = new SegmentTask(segment);
+            if (!tasks.isEmpty()) {
+                try {
+                    baiduApiExecutor.execute(task::runIfUnclaimed);
+                } catch (RejectedExecutionException e) {
+                    // 线程池拒绝时该段保持未认领，下面由调用线程识别
+                    logger.debug("分段识别任务被线程池拒绝，由调用线程识别: {}", e.getMessage());
+                }
+            }
+            tasks.add(task);
+        }
+        for (SegmentTask task : tasks) {
+            task.runIfUnclaimed();
+        }
+        
+        String transcript = "";
+        for (SegmentTask task : tasks) {
+            try {
+                transcript = TranscriptStitcher.append(transcript, task.result.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        logger.info("分段识别完成，共 {} 段，耗时 {}ms", segments.size(), (System.nanoTime() - startNanos) / 1_000_000);
+        return transcript;
+    }
+    
+    /**
+     * 识别单段
+     */
+    private String recognizeSegment(AudioSegment segment) throws Exception {
+        String name = "第" + segment.index() + "段(" + segment.startMillis() + "ms)";
+        return recognizeOnce(() -> callAsrApi(AsrRequestBody.ofBuffer(requestFields("pcm"), segment.data())), name);
+    }
+    
+    /**
+     * 调用一次识别接口（含重试），没有语音（纯音乐、静音）时返回空文本，不当作失败
+     */
+    private String recognizeOnce(AsrCall call, String name) throws Exception {
+        try {
+            return withRetry(call, name);
+        } catch (AsrException e) {
+            if (e.isNoSpeech()) {
+                logger.info("{} 未识别到语音，按空文本处理", name);
+                return "";
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 网络错误和可重试的接口错误按递增间隔重试
+     */
+    private String withRetry(AsrCall call, String name) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.execute();
+            } catch (IOException | AsrException e) {
+                boolean retryable = !(e instanceof AsrException) || ((AsrException) e).isRetryable();
+                if (!retryable || attempt >= segmentRetries) {
+                    throw e;
+                }
+                logger.warn("{} 识别失败，第 {} 次重试: {}", name, attempt + 1, e.getMessage());
+                Thread.sleep(500L * (attempt + 1));
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface AsrCall {
+        String execute() throws Exception;
+    }
+    
+    /**
+     * 取得一段音频的数据，从文件分段识别时在执行识别前才读入
+     */
+    @FunctionalInterface
+    private interface SegmentLoader {
+        AudioSegment load() throws IOException;
+    }
+    
+    /**
+     * 一段音频的识别任务，线程池和调用线程谁先认领谁执行
+     */
+    private class SegmentTask {
+        private final SegmentLoader segment;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        
+        SegmentTask(SegmentLoader segment) {
+            this.segment = segment;
+        }
         
+        void runIfUnclaimed() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(recognizeSegment(segment.load()));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+    
+    /**
+     * 构造speech以外的请求字段，音频和len由AsrRequestBody填写
+     * @param format 音频格式，wav或pcm
+     */
+    private JSONObject requestFields(String format) {
         // 3. 获取有效的Access Token（缓存+过期校验）
         String validToken = getValidAccessToken();
         
         // 4. 构造请求体（Access Token 填入token字段）
         JSONObject requestBody = new JSONObject();
-        requestBody.put("format", "wav"); // 音频格式
+        requestBody.put("format", format); // 音频格式
         requestBody.put("rate", 16000); // 采样率（固定16000）
         requestBody.put("channel", 1); // 单声道（必填）
         requestBody.put("cuid", macAddress); // 用户唯一标识（MAC地址）
         requestBody.put("dev_pid", 1537); // 普通话模型（有标点）
-        requestBody.put("speech", base64Audio); // Base64编码的音频
-        requestBody.put("len", audioLength); // 原始音频字节数
         requestBody.put("token", validToken); // 核心：填入Access Token（鉴权关键）
-        
-        // 5. 调用API，获取转写结果
-        return callAsrApi(requestBody);
+        return requestBody;
     }
     
     /**
@@ -80,14 +345,14 @@ public class SpeechRecognitionServiceImpl implements SpeechRecognitionService {
         if (accessToken == null || System.currentTimeMillis() > tokenExpireTime) {
             synchronized (this) { // 双重检查锁，避免并发重复请求
                 if (accessToken == null || System.currentTimeMillis() > tokenExpireTime) {
-                    String tokenUrl = String.format(ACCESS_TOKEN_URL, apiKey, secretKey);
+                    String tokenUrl = accessTokenUrl + String.format(ACCESS_TOKEN_QUERY, apiKey, secretKey);
                     HttpResponse response = HttpRequest.get(tokenUrl).execute();
                     JSONObject tokenJson = JSONObject.parseObject(response.body());
                     
                     // 解析Token和过期时间（expires_in单位：秒）
                     accessToken = tokenJson.getString("access_token");
                     int expiresIn = tokenJson.getIntValue("expires_in"); // 通常是2592000秒（30天）
-                    tokenExpireTime = System.currentTimeMillis() + (expiresIn - 300) * 1000; // 提前5分钟过期，避免临界问题
+                    tokenExpireTime = System.currentTimeMillis() + (expiresIn - 300) * 1000L; // 提前5分钟过期，避免临界问题
                     
                     logger.info("获取Access Token成功，有效期至：{}", tokenExpireTime);
                 }
@@ -96,33 +361,42 @@ public class SpeechRecognitionServiceImpl implements SpeechRecognitionService {
         return accessToken;
     }
     
-    /**
-     * 本地文件转 Base64
-     * @param file 文件对象
-     * @return Base64编码字符串
-     * @throws Exception 文件读取异常
-     */
-    private String encodeFileToBase64(File file) throws Exception {
-        byte[] fileBytes = new byte[(int) file.length()];
-        try (FileInputStream fis = new FileInputStream(file)) {
-            fis.read(fileBytes);
-        }
-        return Base64.encodeBase64String(fileBytes);
-    }
-    
     /**
      * 调用短语音识别API
+     * 请求体按已知长度直接写入连接，不在内存中拼出完整JSON
      * @param requestBody 请求体
      * @return 识别结果文本
      */
-    private String callAsrApi(JSONObject requestBody) {
-        HttpResponse response = HttpRequest.post(ASR_URL)
-                .header("Content-Type", "application/json") // JSON方式固定header
-                // 注意：Access Token鉴权时，无需Authorization Header！
-                .body(requestBody.toJSONString())
-                .execute();
+    private String callAsrApi(AsrRequestBody requestBody) throws IOException, InterruptedException {
+        // 超过接口QPS限额时在这里排队，而不是让接口返回3304
+        asrRateLimiter.acquire();
+        String responseBody;
+        try (ConcurrencyLimiter.Permit permit = asrRequestLimiter.acquire()) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(asrUrl).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setRequestProperty("Content-Type", "application/json"); // JSON方式固定header
+            // 注意：Access Token鉴权时，无需Authorization Header！
+            connection.setFixedLengthStreamingMode(requestBody.contentLength());
+            try {
+                try (OutputStream out = connection.getOutputStream()) {
+                    requestBody.writeTo(out);
+                }
+                int status = connection.getResponseCode();
+                try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                    responseBody = in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                if (status >= 400) {
+                    throw new IOException("百度ASR接口HTTP状态码: " + status + " " + responseBody);
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
         
-        JSONObject resultJson = JSONObject.parseObject(response.body());
+        JSONObject resultJson = JSONObject.parseObject(responseBody);
         logger.info("百度ASR接口返回：{}", resultJson);
         
         if (resultJson.getIntValue("err_no") == 0) {
@@ -131,8 +405,8 @@ public class SpeechRecognitionServiceImpl implements SpeechRecognitionService {
             logger.info("语音识别成功：{}", result);
             return result;
         } else {
-            throw new RuntimeException("语音转写失败：" + resultJson.getString("err_msg") + 
-                    "（错误码：" + resultJson.getIntValue("err_no") + "）");
+            throw new AsrException("语音转写失败：" + resultJson.getString("err_msg") + 
+                    "（错误码：" + resultJson.getIntValue("err_no") + "）", resultJson.getIntValue("err_no"));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.alan.dy1.Service;
+
+import java.util.Map;
+
+/**
+ * 流水线消息去重接口
+ * 消息键为NewWorksMessage的消息id（博主id:目标作品数），同一批新作品无论被检查到多少次都只对应一个键
+ */
+public interface PipelineIdempotencyService {
+
+    /**
+     * 发布前登记消息键，同一个键在处理完成或过期前只能登记一次
+     * @param key 消息键
+     * @return 登记成功返回true，已有相同的消息在处理中返回false
+     */
+    boolean tryEnqueue(String key);
+
+    /**
+     * 发布失败时撤销登记，下次检查可以重新发布
+     * @param key 消息键
+     */
+    void release(String key);
+
+    /**
+     * 消息键是否已处理完成
+     * @param key 消息键
+     * @return 已处理完成返回true
+     */
+    boolean isProcessed(String key);
+
+    /**
+     * 下载阶段完成后，在同一事务中记录消息键并把博主的作品数推进到目标值
+     * @param key 消息键
+     * @param creatorId 博主id
+     * @param workNumber 目标作品数
+     */
+    void completeDownload(String key, Integer creatorId, int workNumber);
+
+    /**
+     * 再次收到已处理完成的消息时，把博主的作品数推进到目标值
+     * 作品数可能在完成后被其他路径改小，不推进的话该博主每次检查都会重新发布同一任务
+     * @param creatorId 博主id
+     * @param workNumber 目标作品数
+     */
+    void advanceWorkNumber(Integer creatorId, int workNumber);
+
+    /**
+     * 博主删除作品、作品数变小后，删除该博主目标作品数大于新作品数的已处理记录
+     * 之后发布的新作品会回到这些作品数，清理后同一个消息键能被重新下载
+     * @param creatorId 博主id
+     * @param workNumber 新的作品数
+     */
+    void forgetAbove(Integer creatorId, int workNumber);
+
+    /**
+     * 单个作品是否已发送到识别阶段（或已直接识别完成）
+     * 下载任务部分失败后整体重试时，已处理的作品据此跳过，不重复转换和调用识别接口
+     * @param creatorId 博主id
+     * @param videoUrl 作品地址，为null时无法识别作品，返回false
+     * @return 已处理返回true
+     */
+    boolean isWorkPublished(Integer creatorId, String videoUrl);
+
+    /**
+     * 记录单个作品已发送到识别阶段，与下载任务的消息键共用processed_message表和保留期
+     * @param creatorId 博主id
+     * @param videoUrl 作品地址，为null时不记录
+     */
+    void markWorkPublished(Integer creatorId, String videoUrl);
+
+    /**
+     * 去重统计
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
@@ -1,5 +1,8 @@
 package com.alan.dy1.Service;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+
 /**
  * 语音识别服务接口
  * 用于将音频文件转换为文本
@@ -13,4 +16,18 @@ public interface SpeechRecognitionService {
      * @throws Exception 识别过程中可能发生的异常
      */
     String recognizeSpeech(String audioFilePath) throws Exception;
-}
\ No newline at end of file
+    
+    /**
+     * 识别内存中的PCM音频（16kHz、单声道、16bit小端），以pcm格式提交，不经过WAV文件
+     * @param pcm PCM数据，从position读到limit，不会修改传入缓冲区的位置
+     * @return 识别出的文本
+     * @throws Exception 识别过程中可能发生的异常
+     */
+    String recognizePcm(ByteBuffer pcm) throws Exception;
+    
+    /**
+     * 获取识别接口的在途请求统计
+     * @return 并发上限、在途请求数和排队情况
+     */
+    Map<String, Object> getRequestConcurrencyStats();
+}
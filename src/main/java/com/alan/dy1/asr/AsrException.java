@@ -0,0 +1,36 @@
+package com.alan.dy1.asr;
+
+import java.util.Set;
+
+/**
+ * 语音识别接口返回的错误
+ */
+public class AsrException extends RuntimeException {
+
+    // 服务端繁忙、超出QPS、识别出错，重试可能成功
+    private static final Set<Integer> RETRYABLE_ERRORS = Set.of(3303, 3304, 3307);
+    // 音频质量过差，通常是整段静音
+    private static final int POOR_AUDIO_QUALITY = 3301;
+
+    private final int errNo;
+
+    public AsrException(String message, int errNo) {
+        super(message);
+        this.errNo = errNo;
+    }
+
+    public int getErrNo() {
+        return errNo;
+    }
+
+    public boolean isRetryable() {
+        return RETRYABLE_ERRORS.contains(errNo);
+    }
+
+    /**
+     * 是否是无法识别出语音的音频（例如静音段）
+     */
+    public boolean isNoSpeech() {
+        return errNo == POOR_AUDIO_QUALITY;
+    }
+}
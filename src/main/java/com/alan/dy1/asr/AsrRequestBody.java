@@ -0,0 +1,124 @@
+package com.alan.dy1.asr;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+
+/**
+ * 流式写出的语音识别请求体
+ * 除speech以外的字段先序列化为JSON外壳，音频按固定大小分块读取、Base64编码后直接写入输出流，
+ * 内存占用与音频长度无关
+ */
+public final class AsrRequestBody {
+
+    // 每次读取的原始字节数，3的倍数保证分块编码不产生中间填充
+    private static final int CHUNK_SIZE = 48 * 1024;
+
+    private static final byte[] SPEECH_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] prefix;
+    private final long audioLength;
+    private final Path file;
+    private final ByteBuffer buffer;
+
+    private AsrRequestBody(JSONObject fields, long audioLength, Path file, ByteBuffer buffer) {
+        fields.put("len", audioLength);
+        String envelope = fields.toJSONString();
+        // 去掉结尾的}，接上speech字段
+        this.prefix = (envelope.substring(0, envelope.length() - 1) + ",\"speech\":\"").getBytes(StandardCharsets.UTF_8);
+        this.audioLength = audioLength;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 以文件为音频来源，写出时通过FileChannel分块读取
+     * @param fields speech以外的字段，len会自动填写
+     */
+    public static AsrRequestBody ofFile(JSONObject fields, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new AsrRequestBody(fields, channel.size(), file, null);
+        }
+    }
+
+    /**
+     * 以内存缓冲区为音频来源，读取position到limit之间的数据，不修改缓冲区位置
+     * @param fields speech以外的字段，len会自动填写
+     */
+    public static AsrRequestBody ofBuffer(JSONObject fields, ByteBuffer audio) {
+        return new AsrRequestBody(fields, audio.remaining(), null, audio.duplicate());
+    }
+
+    public long getAudioLength() {
+        return audioLength;
+    }
+
+    /**
+     * 请求体总字节数，可用于定长流式上传
+     */
+    public long contentLength() {
+        return prefix.length + (audioLength + 2) / 3 * 4 + SPEECH_SUFFIX.length;
+    }
+
+    /**
+     * 写出完整的请求体，不关闭输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(prefix);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        // Base64编码流关闭时补齐结尾填充，外层包装避免关闭底层连接
+        try (OutputStream encoder = Base64.getEncoder().wrap(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        })) {
+            if (file != null) {
+                writeFile(encoder, chunk);
+            } else {
+                writeBuffer(encoder, chunk);
+            }
+        }
+        out.write(SPEECH_SUFFIX);
+        out.flush();
+    }
+
+    private void writeFile(OutputStream encoder, byte[] chunk) throws IOException {
+        ByteBuffer wrapped = ByteBuffer.wrap(chunk);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long remaining = audioLength;
+            while (remaining > 0) {
+                wrapped.clear();
+                wrapped.limit((int) Math.min(chunk.length, remaining));
+                int read = channel.read(wrapped);
+                if (read < 0) {
+                    throw new IOException("音频文件在读取过程中被截断: " + file);
+                }
+                encoder.write(chunk, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private void writeBuffer(OutputStream encoder, byte[] chunk) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            encoder.write(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.alan.dy1.asr;
+
+import com.alan.dy1.audio.PcmBufferPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 切分后的一段PCM音频
+ * @param index 段序号，从0开始
+ * @param startMillis 在原音频中的起始时间
+ * @param data 该段数据，与原缓冲区共享内存
+ */
+public record AudioSegment(int index, long startMillis, ByteBuffer data) {
+
+    public long durationMillis() {
+        return data.remaining() * 1000L / PcmBufferPool.BYTES_PER_SECOND;
+    }
+}
@@ -0,0 +1,138 @@
+package com.alan.dy1.asr;
+
+import com.alan.dy1.audio.PcmBufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按静音位置切分16kHz单声道s16le PCM
+ * 每段不超过最大时长；在段尾之前的搜索窗口内找能量最低的帧作为切点，
+ * 相邻两段重叠一小段，避免切点附近的字被截断
+ */
+public class AudioSegmenter {
+
+    // 能量计算的帧长：20ms
+    private static final int FRAME_BYTES = PcmBufferPool.BYTES_PER_SECOND / 50;
+
+    private final int maxSegmentBytes;
+    private final int searchWindowBytes;
+    private final int overlapBytes;
+
+    /**
+     * @param maxSegmentMillis 单段最大时长
+     * @param searchWindowMillis 在段尾往前多长范围内寻找静音切点
+     * @param overlapMillis 相邻段的重叠时长
+     */
+    public AudioSegmenter(long maxSegmentMillis, long searchWindowMillis, long overlapMillis) {
+        this.maxSegmentBytes = frameAligned(maxSegmentMillis);
+        this.overlapBytes = Math.min(frameAligned(overlapMillis), maxSegmentBytes / 4);
+        this.searchWindowBytes = Math.max(FRAME_BYTES, Math.min(frameAligned(searchWindowMillis), maxSegmentBytes / 2));
+    }
+
+    /**
+     * 是否需要切分
+     */
+    public boolean needsSplit(ByteBuffer pcm) {
+        return pcm.remaining() > maxSegmentBytes;
+    }
+
+    /**
+     * 切分音频，读取position到limit之间的数据，不修改缓冲区位置
+     * @return 按时间顺序排列的音频段，不超过最大时长时只有一段
+     */
+    public List<AudioSegment> split(ByteBuffer pcm) {
+        ByteBuffer source = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int base = source.position();
+        List<Range> ranges = plan(source.remaining(), (offset, length) -> slice(source, base + offset, length));
+        List<AudioSegment> segments = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            segments.add(new AudioSegment(segments.size(), range.startMillis(), slice(source, base + range.offset(), range.length())));
+        }
+        return segments;
+    }
+
+    /**
+     * 计算各段的位置，只通过reader读取每个切点之前的搜索窗口，不需要整段音频在内存中
+     * @param length 音频字节数
+     * @param reader 按偏移读取一段数据，返回的缓冲区为小端序
+     * @return 按时间顺序排列的各段位置
+     */
+    public <E extends Exception> List<Range> plan(int length, WindowReader<E> reader) throws E {
+        length &= ~1;
+        List<Range> ranges = new ArrayList<>();
+        int start = 0;
+        while (start < length) {
+            int end;
+            if (length - start <= maxSegmentBytes) {
+                end = length;
+            } else {
+                int limit = start + maxSegmentBytes;
+                int from = limit - searchWindowBytes;
+                end = from + quietestFrameEnd(reader.read(from, searchWindowBytes));
+            }
+            ranges.add(new Range(start, end - start));
+            if (end >= length) {
+                break;
+            }
+            // 下一段从切点前重叠一段开始，保证向前推进
+            start = Math.max(start + FRAME_BYTES, end - overlapBytes);
+        }
+        return ranges;
+    }
+
+    /**
+     * 在搜索窗口内找平均能量最低的20ms帧，返回该帧在窗口内的结束位置
+     */
+    private static int quietestFrameEnd(ByteBuffer window) {
+        ByteBuffer samples = window.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int base = samples.position();
+        int to = samples.remaining();
+        long quietest = Long.MAX_VALUE;
+        int cut = to;
+        for (int frameStart = 0; frameStart + FRAME_BYTES <= to; frameStart += FRAME_BYTES) {
+            long energy = 0;
+            for (int i = frameStart; i < frameStart + FRAME_BYTES; i += 2) {
+                int sample = samples.getShort(base + i);
+                energy += (long) sample * sample;
+            }
+            // 能量相同时取更靠后的帧，段尽量长
+            if (energy <= quietest) {
+                quietest = energy;
+                cut = frameStart + FRAME_BYTES;
+            }
+        }
+        return cut;
+    }
+
+    private static ByteBuffer slice(ByteBuffer source, int offset, int length) {
+        return source.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 一段音频在原数据中的位置
+     * @param offset 起始字节
+     * @param length 字节数
+     */
+    public record Range(int offset, int length) {
+
+        public long startMillis() {
+            return offset * 1000L / PcmBufferPool.BYTES_PER_SECOND;
+        }
+    }
+
+    /**
+     * 按偏移读取音频数据
+     */
+    @FunctionalInterface
+    public interface WindowReader<E extends Exception> {
+        ByteBuffer read(int offset, int length) throws E;
+    }
+
+    private static int frameAligned(long millis) {
+        long bytes = millis * PcmBufferPool.BYTES_PER_SECOND / 1000;
+        return (int) Math.max(FRAME_BYTES, bytes / FRAME_BYTES * FRAME_BYTES);
+    }
+}
@@ -0,0 +1,245 @@
+package com.alan.dy1.asr;
+
+import com.alan.dy1.audio.WavPcm;
+import com.alan.dy1.domain.TranscriptCacheEntry;
+import com.alan.dy1.repository.TranscriptCacheRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按音频内容寻址的识别结果缓存
+ * 内存LRU为第一级，transcript_cache表为持久化的第二级；同一段音频重复识别时不再调用接口，
+ * 同时到达的相同音频只识别一次
+ */
+@Component
+public class TranscriptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscriptCache.class);
+
+    private static final int DIGEST_CHUNK_SIZE = 64 * 1024;
+
+    @Autowired
+    private TranscriptCacheRepository transcriptCacheRepository;
+
+    @Value("${baidu.asr.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${baidu.asr.cache.max-size:1000}")
+    private int maxSize;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // 等待同一音频的在途识别、没有重复调用接口的次数
+    private final AtomicLong inFlightWaits = new AtomicLong();
+
+    // 正在识别的音频，键为音频哈希
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private Map<String, String> entries;
+
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询识别结果，先查内存再查数据库，数据库命中后放入内存
+     * @param audioHash 音频的SHA-256
+     */
+    public Optional<String> get(String audioHash) {
+        synchronized (this) {
+            String cached = entries.get(audioHash);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return Optional.of(cached);
+            }
+        }
+        Optional<TranscriptCacheEntry> stored;
+        try {
+            stored = transcriptCacheRepository.findById(audioHash);
+        } catch (RuntimeException e) {
+            // 持久层不可用时退化为只用内存缓存
+            logger.warn("读取识别缓存失败: {}", e.getMessage());
+            stored = Optional.empty();
+        }
+        if (stored.isEmpty()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        databaseHits.incrementAndGet();
+        synchronized (this) {
+            entries.put(audioHash, stored.get().getTranscript());
+        }
+        return Optional.of(stored.get().getTranscript());
+    }
+
+    /**
+     * 查询识别结果，未命中时调用recognizer识别并保存
+     * 同一音频同时只有一个线程调用识别接口，其余线程等待它的结果；识别失败时等待的线程收到同一个异常
+     * @param audioHash 音频PCM数据的SHA-256，为null时不使用缓存，直接识别
+     */
+    public String getOrRecognize(String audioHash, Recognizer recognizer) throws Exception {
+        if (audioHash == null) {
+            return recognizer.recognize();
+        }
+        Optional<String> cached = get(audioHash);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(audioHash, flight);
+        if (existing != null) {
+            inFlightWaits.incrementAndGet();
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        try {
+            String text;
+            synchronized (this) {
+                // 上一次识别在查询缓存之后、登记之前刚好完成
+                text = entries.get(audioHash);
+            }
+            if (text == null) {
+                text = recognizer.recognize();
+                put(audioHash, text);
+            }
+            flight.complete(text);
+            return text;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(audioHash, flight);
+        }
+    }
+
+    /**
+     * 一次识别调用
+     */
+    @FunctionalInterface
+    public interface Recognizer {
+        String recognize() throws Exception;
+    }
+
+    /**
+     * 保存识别结果到内存和数据库
+     */
+    public void put(String audioHash, String transcript) {
+        synchronized (this) {
+            entries.put(audioHash, transcript);
+        }
+        try {
+            transcriptCacheRepository.save(new TranscriptCacheEntry(audioHash, transcript));
+        } catch (RuntimeException e) {
+            logger.warn("保存识别缓存失败: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = memoryHits.get() + databaseHits.get();
+        long total = hits + misses.get();
+        stats.put("enabled", enabled);
+        synchronized (this) {
+            stats.put("memorySize", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("databaseHits", databaseHits.get());
+        stats.put("misses", misses.get());
+        stats.put("inFlightWaits", inFlightWaits.get());
+        stats.put("inFlight", inFlight.size());
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0);
+        return stats;
+    }
+
+    /**
+     * 计算缓冲区position到limit之间数据的SHA-256，不修改缓冲区位置
+     */
+    public static String sha256(ByteBuffer data) {
+        MessageDigest digest = newDigest();
+        digest.update(data.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 音频文件的缓存键：16kHz单声道PCM WAV只对数据块计算SHA-256，文件头和元数据不同的相同音频共用一个键，
+     * 也与解码后的同一段PCM的键相同；其他格式对整个文件计算
+     */
+    public static String audioHash(Path file) throws IOException {
+        WavPcm wav = WavPcm.open(file);
+        return wav != null ? sha256(wav) : sha256(file);
+    }
+
+    /**
+     * 分块读取文件计算SHA-256
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer chunk = ByteBuffer.allocate(DIGEST_CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                digest.update(chunk);
+                chunk.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 分块读取WAV数据块计算SHA-256，与解码后的同一段PCM结果相同
+     */
+    public static String sha256(WavPcm wav) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer chunk = ByteBuffer.allocate(DIGEST_CHUNK_SIZE);
+        for (int offset = 0; offset < wav.getLength(); offset += chunk.limit()) {
+            chunk.clear().limit(Math.min(DIGEST_CHUNK_SIZE, wav.getLength() - offset));
+            wav.read(offset, chunk);
+            chunk.flip();
+            digest.update(chunk);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256", e);
+        }
+    }
+}
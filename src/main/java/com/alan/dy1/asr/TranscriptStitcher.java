@@ -0,0 +1,35 @@
+package com.alan.dy1.asr;
+
+/**
+ * 拼接各段识别结果
+ * 相邻段有重叠，重叠部分可能被两段都识别出来，拼接时去掉前一段结尾与后一段开头重复的文字
+ */
+public final class TranscriptStitcher {
+
+    // 最多检查的重复字数
+    private static final int MAX_OVERLAP_CHARS = 12;
+    // 至少重复这么多字才认为是重叠，避免误删单个相同的字
+    private static final int MIN_OVERLAP_CHARS = 2;
+
+    private TranscriptStitcher() {
+    }
+
+    /**
+     * 把next接到current之后，去掉两者的重复部分
+     */
+    public static String append(String current, String next) {
+        if (next == null || next.isEmpty()) {
+            return current;
+        }
+        if (current == null || current.isEmpty()) {
+            return next;
+        }
+        int max = Math.min(MAX_OVERLAP_CHARS, Math.min(current.length(), next.length()));
+        for (int overlap = max; overlap >= MIN_OVERLAP_CHARS; overlap--) {
+            if (current.regionMatches(current.length() - overlap, next, 0, overlap)) {
+                return current + next.substring(overlap);
+            }
+        }
+        return current + next;
+    }
+}
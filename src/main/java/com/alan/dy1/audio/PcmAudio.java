@@ -0,0 +1,72 @@
+package com.alan.dy1.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 内存中的16kHz单声道s16le PCM音频
+ * 数据位于池化的直接缓冲区中，用完必须close归还
+ */
+public class PcmAudio implements AutoCloseable {
+
+    public static final int SAMPLE_RATE = 16000;
+    public static final int CHANNELS = 1;
+
+    private final PcmBufferPool pool;
+    private ByteBuffer buffer;
+    private long trimmedMillis;
+
+    PcmAudio(PcmBufferPool pool, ByteBuffer buffer) {
+        this.pool = pool;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 获取PCM数据的只读视图，position为0，limit为数据长度
+     */
+    public ByteBuffer getData() {
+        if (buffer == null) {
+            throw new IllegalStateException("PCM缓冲区已归还");
+        }
+        return buffer.asReadOnlyBuffer().order(buffer.order());
+    }
+
+    /**
+     * 数据字节数
+     */
+    public int getLength() {
+        return buffer.limit();
+    }
+
+    public long getDurationMillis() {
+        return getLength() * 1000L / PcmBufferPool.BYTES_PER_SECOND;
+    }
+
+    /**
+     * 静音检测移除的毫秒数
+     */
+    public long getTrimmedMillis() {
+        return trimmedMillis;
+    }
+
+    /**
+     * 可写的底层缓冲区，供同包内的处理原地修改
+     */
+    ByteBuffer buffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("PCM缓冲区已归还");
+        }
+        return buffer;
+    }
+
+    void trimmed(long millis) {
+        trimmedMillis += millis;
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
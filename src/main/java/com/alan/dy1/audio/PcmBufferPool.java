@@ -0,0 +1,97 @@
+package com.alan.dy1.audio;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PCM直接缓冲区池
+ * 解码出的16kHz单声道s16le数据写入池中的直接缓冲区，用完归还，避免每个音频都分配一次大块内存
+ */
+@Component
+public class PcmBufferPool {
+
+    // 16kHz、单声道、16bit，每秒字节数
+    public static final int BYTES_PER_SECOND = 16000 * 2;
+
+    private final BlockingQueue<ByteBuffer> idle;
+    private final int initialCapacity;
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+
+    public PcmBufferPool(@Value("${audio.pcm.pool-size:4}") int poolSize,
+                         @Value("${audio.pcm.buffer-seconds:60}") int bufferSeconds) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.initialCapacity = bufferSeconds * BYTES_PER_SECOND;
+    }
+
+    /**
+     * 借出一个已清空的缓冲区，池中没有时新分配
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            return allocate(initialCapacity);
+        }
+        reuses.incrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 确保缓冲区还能写入required字节，不够时换一个两倍大小的缓冲区并复制已写入的数据
+     * 旧缓冲区归还到池中
+     */
+    public ByteBuffer ensureRemaining(ByteBuffer buffer, int required) {
+        if (buffer.remaining() >= required) {
+            return buffer;
+        }
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < required) {
+            capacity *= 2;
+        }
+        ByteBuffer larger = allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        release(buffer);
+        return larger;
+    }
+
+    /**
+     * 写入完成，把缓冲区包装为PcmAudio，关闭时归还到池中
+     */
+    public PcmAudio complete(ByteBuffer buffer) {
+        buffer.flip();
+        return new PcmAudio(this, buffer);
+    }
+
+    /**
+     * 归还缓冲区，池已满时直接丢弃
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            buffer.clear();
+            idle.offer(buffer);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("idle", idle.size());
+        stats.put("allocations", allocations.get());
+        stats.put("reuses", reuses.get());
+        return stats;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        allocations.incrementAndGet();
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,74 @@
+package com.alan.dy1.audio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上传识别前移除PCM中的静音
+ * 每个线程复用各自的检测器，同时统计累计移除的时长
+ * 检测需要整段PCM在内存中，开启后识别WAV时也要先整体解码，默认关闭
+ */
+@Component
+public class SilenceTrimmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SilenceTrimmer.class);
+
+    private final boolean enabled;
+    private final ThreadLocal<VoiceActivityDetector> detectors;
+
+    private final AtomicLong audios = new AtomicLong();
+    private final AtomicLong inputMillis = new AtomicLong();
+    private final AtomicLong removedMillis = new AtomicLong();
+
+    public SilenceTrimmer(@Value("${audio.vad.enabled:false}") boolean enabled,
+                          @Value("${audio.vad.min-rms:300}") int minRms,
+                          @Value("${audio.vad.noise-ratio:4.0}") double noiseRatio,
+                          @Value("${audio.vad.min-silence-ms:600}") long minSilenceMillis,
+                          @Value("${audio.vad.padding-ms:200}") long paddingMillis) {
+        this.enabled = enabled;
+        this.detectors = ThreadLocal.withInitial(() ->
+                new VoiceActivityDetector(minRms, noiseRatio, minSilenceMillis, paddingMillis));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 移除音频中的静音，结果直接写回音频的缓冲区
+     * @return 移除的毫秒数，未启用时为0
+     */
+    public long trim(PcmAudio audio) {
+        if (!enabled) {
+            return 0;
+        }
+        long before = audio.getDurationMillis();
+        int removedBytes = detectors.get().trim(audio.buffer());
+        long removed = (long) removedBytes * 1000 / PcmBufferPool.BYTES_PER_SECOND;
+        audio.trimmed(removed);
+
+        audios.incrementAndGet();
+        inputMillis.addAndGet(before);
+        removedMillis.addAndGet(removed);
+        logger.debug("静音检测：原时长 {}ms，移除 {}ms", before, removed);
+        return removed;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long input = inputMillis.get();
+        long removed = removedMillis.get();
+        stats.put("enabled", enabled);
+        stats.put("audios", audios.get());
+        stats.put("inputSeconds", input / 1000.0);
+        stats.put("removedSeconds", removed / 1000.0);
+        stats.put("removedRatio", input > 0 ? (double) removed / input : 0);
+        return stats;
+    }
+}
@@ -0,0 +1,144 @@
+package com.alan.dy1.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * 基于短时能量和过零率的语音活动检测
+ * 按20ms帧判断是否有语音，较长的静音段只保留前后各一小段，其余部分在缓冲区内原地移除。
+ * 逐帧处理时只使用实例内复用的short[]，不产生任何分配；实例不是线程安全的，每个线程使用各自的实例
+ */
+public class VoiceActivityDetector {
+
+    // 20ms帧
+    static final int FRAME_SAMPLES = PcmAudio.SAMPLE_RATE / 50;
+    private static final int FRAME_BYTES = FRAME_SAMPLES * 2;
+
+    // 过零率高于此值的低能量帧视为清辅音，也算作语音
+    private static final double UNVOICED_ZCR = 0.25;
+    // 清辅音帧的能量下限（相对语音阈值）
+    private static final double UNVOICED_ENERGY_RATIO = 0.25;
+    // 噪声基底的上升速度，基底下降时立即跟随
+    private static final double NOISE_FLOOR_RISE = 0.002;
+
+    private final short[] frame = new short[FRAME_SAMPLES];
+    private final double minEnergy;
+    private final double noiseRatio;
+    private final int minSilenceFrames;
+    private final int paddingFrames;
+
+    private double noiseFloor;
+
+    /**
+     * @param minRms 语音帧的最小均方根幅度（16bit采样）
+     * @param noiseRatio 语音帧能量至少是噪声基底的多少倍
+     * @param minSilenceMillis 超过此长度的静音才会被移除
+     * @param paddingMillis 移除静音时在语音前后各保留的长度
+     */
+    public VoiceActivityDetector(int minRms, double noiseRatio, long minSilenceMillis, long paddingMillis) {
+        this.minEnergy = (double) minRms * minRms;
+        this.noiseRatio = noiseRatio;
+        this.paddingFrames = (int) (paddingMillis / 20);
+        this.minSilenceFrames = Math.max((int) (minSilenceMillis / 20), paddingFrames * 2);
+    }
+
+    /**
+     * 原地移除position到limit之间的静音，语音数据前移，limit随之缩小
+     * 不足一帧的结尾数据直接丢弃
+     * @param pcm 可写的16kHz单声道s16le缓冲区
+     * @return 移除的字节数
+     */
+    public int trim(ByteBuffer pcm) {
+        int base = pcm.position();
+        int frames = pcm.remaining() / FRAME_BYTES;
+        ShortBuffer samples = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        noiseFloor = minEnergy;
+
+        int write = base;
+        int silenceStart = 0;
+        boolean inSilence = true;
+        boolean seenSpeech = false;
+        for (int f = 0; f < frames; f++) {
+            samples.get(f * FRAME_SAMPLES, frame, 0, FRAME_SAMPLES);
+            if (isSpeech()) {
+                if (inSilence) {
+                    write = keepSilence(pcm, base, write, silenceStart, f, !seenSpeech, false);
+                    inSilence = false;
+                    seenSpeech = true;
+                }
+                write = copy(pcm, base + f * FRAME_BYTES, write, FRAME_BYTES);
+            } else if (!inSilence) {
+                silenceStart = f;
+                inSilence = true;
+            }
+        }
+        if (inSilence && seenSpeech) {
+            write = keepSilence(pcm, base, write, silenceStart, frames, false, true);
+        }
+        int removed = pcm.limit() - write;
+        pcm.limit(write);
+        return removed;
+    }
+
+    /**
+     * 判断当前帧是否为语音，同时更新噪声基底
+     */
+    private boolean isSpeech() {
+        long sumSquares = 0;
+        int crossings = 0;
+        short previous = frame[0];
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            short sample = frame[i];
+            sumSquares += (long) sample * sample;
+            if ((sample ^ previous) < 0) {
+                crossings++;
+            }
+            previous = sample;
+        }
+        double energy = (double) sumSquares / FRAME_SAMPLES;
+        double zcr = (double) crossings / FRAME_SAMPLES;
+
+        double threshold = Math.max(minEnergy, noiseFloor * noiseRatio);
+        boolean speech = energy >= threshold
+                || (energy >= threshold * UNVOICED_ENERGY_RATIO && zcr >= UNVOICED_ZCR);
+        if (energy < noiseFloor) {
+            noiseFloor = Math.max(energy, 1);
+        } else if (!speech) {
+            noiseFloor += (energy - noiseFloor) * NOISE_FLOOR_RISE;
+        }
+        return speech;
+    }
+
+    /**
+     * 处理[start, end)帧的静音段：较短的静音原样保留，较长的只保留靠近语音的一端或两端
+     * @param leading 位于第一段语音之前
+     * @param trailing 位于最后一段语音之后
+     * @return 新的写入位置
+     */
+    private int keepSilence(ByteBuffer pcm, int base, int write, int start, int end, boolean leading, boolean trailing) {
+        int length = end - start;
+        if (length <= minSilenceFrames && !leading && !trailing) {
+            return copy(pcm, base + start * FRAME_BYTES, write, length * FRAME_BYTES);
+        }
+        if (!leading) {
+            int head = Math.min(paddingFrames, length);
+            write = copy(pcm, base + start * FRAME_BYTES, write, head * FRAME_BYTES);
+        }
+        if (!trailing) {
+            int tail = Math.min(paddingFrames, length);
+            write = copy(pcm, base + (end - tail) * FRAME_BYTES, write, tail * FRAME_BYTES);
+        }
+        return write;
+    }
+
+    /**
+     * 在同一缓冲区内前移数据，写入位置永远不超过读取位置，未处理的数据不会被覆盖
+     */
+    private static int copy(ByteBuffer pcm, int from, int to, int length) {
+        if (from != to && length > 0) {
+            pcm.put(to, pcm, from, length);
+        }
+        return to + length;
+    }
+}
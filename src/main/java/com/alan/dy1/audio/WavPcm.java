@@ -0,0 +1,125 @@
+package com.alan.dy1.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 16kHz单声道s16le WAV文件中的PCM数据块
+ * 只解析RIFF头找到data块的位置，不经过FFmpeg解码；数据按需分段从文件读取，
+ * 不整体读入内存，也不占用PCM缓冲池
+ */
+public final class WavPcm {
+
+    private static final int RIFF_HEADER_BYTES = 12;
+    private static final int CHUNK_HEADER_BYTES = 8;
+    private static final int WAVE_FORMAT_PCM = 1;
+
+    private final Path file;
+    private final long offset;
+    private final int length;
+
+    private WavPcm(Path file, long offset, int length) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 解析WAV头
+     * @return 格式不是16kHz单声道16bit PCM或文件头不完整时返回null，调用方改用FFmpeg解码
+     */
+    public static WavPcm open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(RIFF_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, header, 0) || header.getInt(0) != fourCc("RIFF") || header.getInt(8) != fourCc("WAVE")) {
+                return null;
+            }
+            boolean formatMatches = false;
+            long position = RIFF_HEADER_BYTES;
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_HEADER_BYTES + 16).order(ByteOrder.LITTLE_ENDIAN);
+            while (position + CHUNK_HEADER_BYTES <= size) {
+                chunk.clear().limit(CHUNK_HEADER_BYTES);
+                if (!readFully(channel, chunk, position)) {
+                    return null;
+                }
+                int id = chunk.getInt(0);
+                long chunkSize = Integer.toUnsignedLong(chunk.getInt(4));
+                long body = position + CHUNK_HEADER_BYTES;
+                if (id == fourCc("fmt ")) {
+                    chunk.clear().limit(16);
+                    if (chunkSize < 16 || !readFully(channel, chunk, body)) {
+                        return null;
+                    }
+                    formatMatches = chunk.getShort(0) == WAVE_FORMAT_PCM
+                            && chunk.getShort(2) == PcmAudio.CHANNELS
+                            && chunk.getInt(4) == PcmAudio.SAMPLE_RATE
+                            && chunk.getShort(14) == 16;
+                } else if (id == fourCc("data")) {
+                    // 写入未完成的文件data块长度可能不准，以实际文件长度为准，并对齐到整采样
+                    long available = Math.min(chunkSize, size - body) & ~1L;
+                    if (!formatMatches || available > Integer.MAX_VALUE) {
+                        return null;
+                    }
+                    return new WavPcm(file, body, (int) available);
+                }
+                // 块长度为奇数时后面有一个填充字节
+                position = body + chunkSize + (chunkSize & 1);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 数据块的字节数
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public long getDurationMillis() {
+        return length * 1000L / PcmBufferPool.BYTES_PER_SECOND;
+    }
+
+    /**
+     * 从数据块的offset处读取length字节到新的小端缓冲区，position为0
+     */
+    public ByteBuffer read(int offset, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        read(offset, target);
+        return target.flip();
+    }
+
+    /**
+     * 从数据块的offset处读取数据，填满target的剩余空间
+     */
+    public void read(int offset, ByteBuffer target) throws IOException {
+        if (offset < 0 || offset + target.remaining() > length) {
+            throw new IndexOutOfBoundsException("读取范围超出数据块: " + offset + "+" + target.remaining() + " > " + length);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!readFully(channel, target, this.offset + offset)) {
+                throw new IOException("音频文件在读取过程中被截断: " + file);
+            }
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private static int fourCc(String id) {
+        return id.charAt(0) | id.charAt(1) << 8 | id.charAt(2) << 16 | id.charAt(3) << 24;
+    }
+}
@@ -0,0 +1,17 @@
+package com.alan.dy1.domain;
+
+/**
+ * 单个博主作品数量检查结果
+ */
+public enum CheckOutcome {
+    // 有新作品，已发送下载任务
+    NEW_WORKS,
+    // 有新作品，但同一任务还在处理中或下载阶段已满，本次未发送
+    DEFERRED,
+    // 作品被删除，已更新作品数
+    DELETED_WORKS,
+    // 作品数无变化
+    UNCHANGED,
+    // 获取作品数量失败
+    FAILED
+}
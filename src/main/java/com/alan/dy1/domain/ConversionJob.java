@@ -0,0 +1,148 @@
+package com.alan.dy1.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量音频转换任务的进度
+ * 各文件的状态由转换线程并发更新，查询接口随时读取快照
+ */
+public class ConversionJob {
+
+    /**
+     * 单个文件的转换状态
+     */
+    public enum FileStatus {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * 单个文件的进度
+     */
+    public static class FileProgress {
+        private final String fileName;
+        private volatile FileStatus status = FileStatus.PENDING;
+        private volatile long elapsedMillis;
+        private volatile String error;
+
+        FileProgress(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public FileStatus getStatus() {
+            return status;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final String jobId;
+    private final String sourceDir;
+    private final Map<String, FileProgress> files = new LinkedHashMap<>();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final long startedAtMillis = System.currentTimeMillis();
+    private volatile long finishedAtMillis;
+
+    public ConversionJob(String jobId, String sourceDir, Collection<String> fileNames) {
+        this.jobId = jobId;
+        this.sourceDir = sourceDir;
+        for (String fileName : fileNames) {
+            files.put(fileName, new FileProgress(fileName));
+        }
+        if (fileNames.isEmpty()) {
+            finishedAtMillis = startedAtMillis;
+        }
+    }
+
+    public void started(String fileName) {
+        files.get(fileName).status = FileStatus.RUNNING;
+    }
+
+    /**
+     * 记录单个文件转换完成，可并发调用
+     * @param error 失败原因，成功时为null
+     * @return 这是否是任务的最后一个文件
+     */
+    public boolean finished(String fileName, long elapsedMillis, String error) {
+        FileProgress progress = files.get(fileName);
+        progress.elapsedMillis = elapsedMillis;
+        progress.error = error;
+        progress.status = error == null ? FileStatus.DONE : FileStatus.FAILED;
+        if (error != null) {
+            failed.incrementAndGet();
+        }
+        if (completed.incrementAndGet() == files.size()) {
+            finishedAtMillis = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getSourceDir() {
+        return sourceDir;
+    }
+
+    public int getTotal() {
+        return files.size();
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public boolean isFinished() {
+        return finishedAtMillis > 0;
+    }
+
+    public long getElapsedMillis() {
+        return (isFinished() ? finishedAtMillis : System.currentTimeMillis()) - startedAtMillis;
+    }
+
+    /**
+     * 每秒转换的文件数
+     */
+    public double getFilesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed > 0 ? completed.get() * 1000.0 / elapsed : 0;
+    }
+
+    public Collection<FileProgress> getFiles() {
+        return files.values();
+    }
+
+    /**
+     * 失败的文件及原因
+     */
+    public List<FileProgress> getFailures() {
+        List<FileProgress> failures = new ArrayList<>();
+        for (FileProgress progress : files.values()) {
+            if (progress.status == FileStatus.FAILED) {
+                failures.add(progress);
+            }
+        }
+        return failures;
+    }
+}
@@ -2,8 +2,10 @@ package com.alan.dy1.domain;
 
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "douyin")
+@Table(name = "douyin", uniqueConstraints = @UniqueConstraint(name = "uk_douyin_url", columnNames = "url"))
 public class Douyin {
     
     @Id
@@ -26,6 +28,18 @@ public class Douyin {
     @Column(name = "work_number", nullable = false)
     private Integer workNumber;
     
+    // 最近一次检查作品数量的时间
+    @Column(name = "last_checked_at")
+    private LocalDateTime lastCheckedAt;
+    
+    // 最近一次发现新作品的时间
+    @Column(name = "last_changed_at")
+    private LocalDateTime lastChangedAt;
+    
+    // 观测到的平均发布间隔（秒），用于调整检查频率
+    @Column(name = "avg_post_interval_seconds")
+    private Long avgPostIntervalSeconds;
+    
     // Constructors
     public Douyin() {}
     
@@ -86,6 +100,42 @@ public class Douyin {
         this.workNumber = workNumber;
     }
     
+    public LocalDateTime getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+    
+    public void setLastCheckedAt(LocalDateTime lastCheckedAt) {
+        this.lastCheckedAt = lastCheckedAt;
+    }
+    
+    public LocalDateTime getLastChangedAt() {
+        return lastChangedAt;
+    }
+    
+    public void setLastChangedAt(LocalDateTime lastChangedAt) {
+        this.lastChangedAt = lastChangedAt;
+    }
+    
+    public Long getAvgPostIntervalSeconds() {
+        return avgPostIntervalSeconds;
+    }
+    
+    public void setAvgPostIntervalSeconds(Long avgPostIntervalSeconds) {
+        this.avgPostIntervalSeconds = avgPostIntervalSeconds;
+    }
+    
+    /**
+     * 复制当前状态，缓存对外只提供副本，避免多个线程同时修改同一个对象
+     */
+    public Douyin copy() {
+        Douyin copy = new Douyin(url, name, quantity, relevant, workNumber);
+        copy.id = id;
+        copy.lastCheckedAt = lastCheckedAt;
+        copy.lastChangedAt = lastChangedAt;
+        copy.avgPostIntervalSeconds = avgPostIntervalSeconds;
+        return copy;
+    }
+    
     @Override
     public String toString() {
         return "Douyin{" +
@@ -95,6 +145,8 @@ public class Douyin {
                 ", quantity=" + quantity +
                 ", relevant=" + relevant +
                 ", workNumber=" + workNumber +
+                ", lastCheckedAt=" + lastCheckedAt +
+                ", lastChangedAt=" + lastChangedAt +
                 '}';
     }
 }
\ No newline at end of file
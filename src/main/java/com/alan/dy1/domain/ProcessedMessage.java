@@ -0,0 +1,44 @@
+package com.alan.dy1.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已处理完成的流水线消息，按消息键去重
+ */
+@Entity
+@Table(name = "processed_message")
+public class ProcessedMessage {
+
+    // 消息键：博主id:目标作品数
+    @Id
+    @Column(name = "message_key", length = 64)
+    private String messageKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public ProcessedMessage() {}
+
+    public ProcessedMessage(String messageKey) {
+        this.messageKey = messageKey;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
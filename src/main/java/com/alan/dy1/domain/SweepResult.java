@@ -0,0 +1,84 @@
+package com.alan.dy1.domain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次全量检查的汇总结果
+ */
+public class SweepResult {
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger newWorks = new AtomicInteger();
+    private final AtomicInteger deferred = new AtomicInteger();
+    private final AtomicInteger deletedWorks = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile long elapsedMillis;
+
+    /**
+     * 记录单个博主的检查结果，可并发调用
+     */
+    public void record(CheckOutcome outcome) {
+        total.incrementAndGet();
+        switch (outcome) {
+            case NEW_WORKS -> newWorks.incrementAndGet();
+            case DEFERRED -> deferred.incrementAndGet();
+            case DELETED_WORKS -> deletedWorks.incrementAndGet();
+            case UNCHANGED -> unchanged.incrementAndGet();
+            default -> failed.incrementAndGet();
+        }
+    }
+
+    public void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getNewWorks() {
+        return newWorks.get();
+    }
+
+    public int getDeferred() {
+        return deferred.get();
+    }
+
+    public int getDeletedWorks() {
+        return deletedWorks.get();
+    }
+
+    public int getUnchanged() {
+        return unchanged.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 每秒处理的博主数
+     */
+    public double getCreatorsPerSecond() {
+        return elapsedMillis > 0 ? total.get() * 1000.0 / elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SweepResult{" +
+                "total=" + total +
+                ", newWorks=" + newWorks +
+                ", deferred=" + deferred +
+                ", deletedWorks=" + deletedWorks +
+                ", unchanged=" + unchanged +
+                ", failed=" + failed +
+                ", elapsedMillis=" + elapsedMillis +
+                ", creatorsPerSecond=" + String.format("%.2f", getCreatorsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,92 @@
+package com.alan.dy1.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一个作品音频的识别结果
+ */
+@Entity
+@Table(name = "transcript")
+public class Transcript {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    // 音频来源：WAV文件名或音频地址
+    @Column(name = "source", nullable = false, length = 1024)
+    private String source;
+
+    @Column(name = "text", nullable = false, columnDefinition = "TEXT")
+    private String text;
+
+    // 识别耗时（毫秒）
+    @Column(name = "elapsed_millis")
+    private Long elapsedMillis;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Transcript() {}
+
+    public Transcript(String source, String text, Long elapsedMillis) {
+        this.source = source;
+        this.text = text;
+        this.elapsedMillis = elapsedMillis;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(Long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Transcript{" +
+                "id=" + id +
+                ", source='" + source + '\'' +
+                ", text='" + text + '\'' +
+                ", elapsedMillis=" + elapsedMillis +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
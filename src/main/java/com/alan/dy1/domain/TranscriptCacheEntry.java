@@ -0,0 +1,56 @@
+package com.alan.dy1.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 识别结果缓存，按音频内容的SHA-256索引
+ */
+@Entity
+@Table(name = "transcript_cache")
+public class TranscriptCacheEntry {
+
+    // 上传音频数据的SHA-256（十六进制）
+    @Id
+    @Column(name = "audio_hash", length = 64)
+    private String audioHash;
+
+    @Column(name = "transcript", nullable = false, columnDefinition = "TEXT")
+    private String transcript;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public TranscriptCacheEntry() {}
+
+    public TranscriptCacheEntry(String audioHash, String transcript) {
+        this.audioHash = audioHash;
+        this.transcript = transcript;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getAudioHash() {
+        return audioHash;
+    }
+
+    public void setAudioHash(String audioHash) {
+        this.audioHash = audioHash;
+    }
+
+    public String getTranscript() {
+        return transcript;
+    }
+
+    public void setTranscript(String transcript) {
+        this.transcript = transcript;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,19 @@
+package com.alan.dy1.mq;
+
+/**
+ * 一个作品的音频已转换为WAV，发送给语音识别阶段
+ * @param creatorId 博主id
+ * @param videoUrl 作品地址，脚本未返回时为null
+ * @param wavFileName converted_audio目录下的WAV文件名
+ * @param contentHash WAV文件的SHA-256（十六进制）
+ * @param detectedAt 发现新作品的时间（毫秒时间戳）
+ * @param convertedAt 转换完成的时间（毫秒时间戳）
+ */
+public record AudioReadyMessage(int creatorId, String videoUrl, String wavFileName, String contentHash,
+                                long detectedAt, long convertedAt) implements PipelineMessage {
+
+    @Override
+    public String messageId() {
+        return wavFileName;
+    }
+}
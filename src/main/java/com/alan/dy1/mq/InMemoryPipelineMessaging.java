@@ -0,0 +1,330 @@
+package com.alan.dy1.mq;
+
+import com.alan.dy1.Config.mqConfig;
+import com.alan.dy1.trace.TraceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内传递流水线消息，单机部署时替代RabbitMQ，启用方式：spring.profiles.active=inmemory
+ * 每个队列是一个有界环形队列，消息对象直接传递不做序列化；在途消息数由PipelineCoordinator限制，环形队列容量应不小于阶段额度；
+ * 每个消费者是一个专属线程，数量取与RabbitMQ模式相同的配置，队列为空时阻塞在信号量上，不占用CPU；
+ * 失败按相同的退避规则重试，次数用完后进入内存中的死信列表
+ * 队列中的消息不持久化，进程退出时未处理的消息丢失，由下一轮检查在去重记录过期后重新发布
+ */
+@Component
+@Profile(InMemoryPipelineMessaging.PROFILE)
+public class InMemoryPipelineMessaging implements PipelineMessaging, SmartLifecycle {
+
+    public static final String PROFILE = "inmemory";
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryPipelineMessaging.class);
+
+    // 队列满时发布方每隔这么久检查一次是否已停止
+    private static final long FULL_CHECK_MILLIS = 100;
+
+    // 重试时队列已满，稍后再放回
+    private static final long REQUEUE_DELAY_MILLIS = 100;
+
+    @Autowired
+    private PipelineCoordinator pipelineCoordinator;
+
+    @Value("${pipeline.download.concurrency:2}")
+    private int downloadConcurrency;
+
+    @Value("${pipeline.asr.concurrency:4}")
+    private int asrConcurrency;
+
+    // 每个队列的容量，满时发布方等待
+    @Value("${pipeline.inmemory.capacity:1024}")
+    private int capacity;
+
+    // 内存中保留的死信数量
+    @Value("${pipeline.inmemory.dead-letter-size:1000}")
+    private int deadLetterSize;
+
+    @Value("${pipeline.retry.max-attempts:3}")
+    private int maxRetries;
+
+    @Value("${pipeline.retry.initial-delay-ms:5000}")
+    private long retryInitialDelayMillis;
+
+    @Value("${pipeline.retry.multiplier:4.0}")
+    private double retryMultiplier;
+
+    private final Map<String, StageQueue<?>> queues = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> discarded = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pipeline-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+
+    @Override
+    public void publish(String queue, PipelineMessage message) throws InterruptedException {
+        StageQueue<?> stage = queues.get(queue);
+        if (stage == null) {
+            discard(queue);
+            return;
+        }
+        pipelineCoordinator.acquire(queue);
+        stage.put(new Delivery(message, TraceContext.current(), 0));
+    }
+
+    @Override
+    public boolean tryPublish(String queue, PipelineMessage message, long timeoutMillis) throws InterruptedException {
+        StageQueue<?> stage = queues.get(queue);
+        if (stage == null) {
+            discard(queue);
+            return true;
+        }
+        if (!pipelineCoordinator.tryAcquire(queue, timeoutMillis)) {
+            return false;
+        }
+        stage.put(new Delivery(message, TraceContext.current(), 0));
+        return true;
+    }
+
+    @Override
+    public void publishText(String queue, String text) {
+        // 文本队列在进程内模式下没有消费者
+        discard(queue);
+    }
+
+    @Override
+    public <T extends PipelineMessage> void subscribe(String queue, Class<T> type, StageWork<T> work) {
+        if (queues.putIfAbsent(queue, new StageQueue<>(queue, type, work)) != null) {
+            throw new IllegalStateException("队列已注册处理逻辑: " + queue);
+        }
+    }
+
+    private void discard(String queue) {
+        discarded.computeIfAbsent(queue, name -> new AtomicLong()).incrementAndGet();
+        logger.debug("队列没有消费者，消息丢弃: {}", queue);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (StageQueue<?> stage : queues.values()) {
+            stage.startConsumers();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        retryScheduler.shutdownNow();
+        queues.values().forEach(stage -> {
+            stage.stopConsumers();
+            if (stage.ring.size() > 0) {
+                logger.warn("进程内队列中还有 {} 条消息未处理: {}", stage.ring.size(), stage.name);
+            }
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("transport", PROFILE);
+        List<Map<String, Object>> stages = new ArrayList<>();
+        queues.values().forEach(stage -> stages.add(stage.getStats()));
+        stats.put("queues", stages);
+        Map<String, Long> counts = new HashMap<>();
+        discarded.forEach((queue, count) -> counts.put(queue, count.get()));
+        stats.put("discarded", counts);
+        return stats;
+    }
+
+    // 追踪id与RabbitMQ模式下的消息头对应，随消息传递
+    private record Delivery(PipelineMessage payload, String traceId, int attempt) {
+    }
+
+    /**
+     * 一个阶段的队列、处理逻辑和统计
+     * 环形队列本身满或空时立即返回，阻塞由两个信号量完成：items为已写入的消息数，spaces为空闲槽位数，
+     * 拿到信号量后对应的槽位一定存在，只可能因另一个线程还没写完或读完而短暂自旋
+     */
+    private class StageQueue<T extends PipelineMessage> {
+
+        private final String name;
+        private final Class<T> type;
+        private final StageWork<T> work;
+        private final RingBufferQueue<Delivery> ring = new RingBufferQueue<>(capacity);
+        private final ConcurrentLinkedDeque<PipelineMessage> deadLetters = new ConcurrentLinkedDeque<>();
+        private final Semaphore items = new Semaphore(0);
+        private final Semaphore spaces = new Semaphore(ring.capacity());
+        private final List<Thread> consumers = new CopyOnWriteArrayList<>();
+
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final AtomicLong deadLettered = new AtomicLong();
+
+        StageQueue(String name, Class<T> type, StageWork<T> work) {
+            this.name = name;
+            this.type = type;
+            this.work = work;
+        }
+
+        /**
+         * 写入消息，队列满时等待消费者腾出空间
+         */
+        void put(Delivery delivery) throws InterruptedException {
+            while (!spaces.tryAcquire(FULL_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    throw new IllegalStateException("进程内队列已停止且已满: " + name);
+                }
+            }
+            add(delivery);
+            published.incrementAndGet();
+        }
+
+        /**
+         * 队列未满时写入消息，用于重试
+         * @return 队列已满时返回false
+         */
+        boolean tryPut(Delivery delivery) {
+            if (!spaces.tryAcquire()) {
+                return false;
+            }
+            add(delivery);
+            return true;
+        }
+
+        private void add(Delivery delivery) {
+            while (!ring.offer(delivery)) {
+                // 空闲槽位上一圈的消费者还没读完
+                Thread.onSpinWait();
+            }
+            items.release();
+        }
+
+        /**
+         * 取出消息，队列为空时阻塞
+         * @return 已停止时返回null
+         */
+        private Delivery take() throws InterruptedException {
+            items.acquire();
+            if (!running) {
+                return null;
+            }
+            Delivery delivery;
+            while ((delivery = ring.poll()) == null) {
+                // 更早占位的生产者还没写完
+                Thread.onSpinWait();
+            }
+            spaces.release();
+            return delivery;
+        }
+
+        void startConsumers() {
+            boolean download = mqConfig.QUEUE_NEW_TO_DownloadAndChange.equals(name);
+            int count = download ? downloadConcurrency : asrConcurrency;
+            String prefix = download ? "inmemory-download-" : "inmemory-asr-";
+            for (int i = 0; i < count; i++) {
+                Thread thread = new Thread(this::consume, prefix + (i + 1));
+                thread.setDaemon(true);
+                consumers.add(thread);
+                thread.start();
+            }
+            logger.info("进程内队列 {} 启动 {} 个消费者，容量 {}", name, count, ring.capacity());
+        }
+
+        /**
+         * 唤醒所有等待消息的消费者，正在处理的消息处理完后退出
+         */
+        void stopConsumers() {
+            items.release(consumers.size());
+        }
+
+        private void consume() {
+            try {
+                Delivery delivery;
+                while ((delivery = take()) != null) {
+                    process(delivery);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                consumers.remove(Thread.currentThread());
+            }
+        }
+
+        private void process(Delivery delivery) {
+            T payload = type.cast(delivery.payload());
+            try (TraceContext.Scope scope = TraceContext.open(delivery.traceId())) {
+                work.process(payload);
+                completed.incrementAndGet();
+                pipelineCoordinator.release(name);
+            } catch (Exception e) {
+                // 消费者线程是专属的，不恢复中断标记，否则下一次取消息时线程会退出
+                int attempt = delivery.attempt() + 1;
+                if (attempt > maxRetries) {
+                    logger.error("消息处理失败 {} 次，转入死信: {} {}", maxRetries, name, payload, e);
+                    deadLettered.incrementAndGet();
+                    deadLetters.addLast(payload);
+                    while (deadLetters.size() > deadLetterSize) {
+                        deadLetters.pollFirst();
+                    }
+                    pipelineCoordinator.release(name);
+                    return;
+                }
+                logger.warn("消息处理失败，第 {} 次重试: {} {} {}", attempt, name, payload, e.getMessage());
+                retried.incrementAndGet();
+                scheduleRetry(new Delivery(payload, delivery.traceId(), attempt),
+                        mqConfig.retryDelayMillis(retryInitialDelayMillis, retryMultiplier, attempt));
+            }
+        }
+
+        private void scheduleRetry(Delivery delivery, long delayMillis) {
+            if (!running) {
+                return;
+            }
+            retryScheduler.schedule(() -> {
+                if (!tryPut(delivery)) {
+                    scheduleRetry(delivery, REQUEUE_DELAY_MILLIS);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("queue", name);
+            stats.put("size", ring.size());
+            stats.put("capacity", ring.capacity());
+            stats.put("published", published.get());
+            stats.put("completed", completed.get());
+            stats.put("retried", retried.get());
+            stats.put("deadLettered", deadLettered.get());
+            return stats;
+        }
+    }
+}
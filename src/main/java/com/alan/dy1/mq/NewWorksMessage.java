@@ -0,0 +1,28 @@
+package com.alan.dy1.mq;
+
+/**
+ * 检查阶段发现新作品，发送给下载转换阶段
+ * @param creatorId 博主id
+ * @param url 博主主页URL
+ * @param oldCount 已处理到的作品数
+ * @param newCount 本次检查到的作品数
+ * @param detectedAt 发现新作品的时间（毫秒时间戳）
+ */
+public record NewWorksMessage(int creatorId, String url, int oldCount, int newCount, long detectedAt)
+        implements PipelineMessage {
+
+    /**
+     * 博主id:目标作品数，同一批新作品无论被检查到多少次都是同一个id，用作去重的消息键
+     */
+    @Override
+    public String messageId() {
+        return creatorId + ":" + newCount;
+    }
+
+    /**
+     * 需要下载的新作品数
+     */
+    public int delta() {
+        return Math.max(0, newCount - oldCount);
+    }
+}
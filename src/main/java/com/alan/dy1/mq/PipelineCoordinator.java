@@ -0,0 +1,164 @@
+package com.alan.dy1.mq;
+
+import com.alan.dy1.Config.mqConfig;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线各阶段的容量控制
+ * 每个阶段有固定数量的额度，发布消息时占用一个，消息处理完成或进入死信后归还；额度用完时发布方等待，
+ * 识别阶段跟不上时下载阶段的消费者停在发布处，下载队列随之积满，检查阶段不再发布新任务，
+ * 等待处理的WAV文件和队列中的消息数量因此有上限
+ */
+@Component
+public class PipelineCoordinator {
+
+    // 下载队列中未完成的任务数上限
+    @Value("${pipeline.backpressure.download-capacity:32}")
+    private int downloadCapacity;
+
+    // 已转换为WAV、尚未识别完成的音频数上限，即converted_audio目录中等待识别的文件数
+    @Value("${pipeline.backpressure.asr-capacity:16}")
+    private int asrCapacity;
+
+    private final Map<String, StageCredits> stages = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        stages.put(mqConfig.QUEUE_NEW_TO_DownloadAndChange, new StageCredits(mqConfig.QUEUE_NEW_TO_DownloadAndChange, downloadCapacity));
+        stages.put(mqConfig.QUEUE_DownloadAndChange_TO_BaiduApi, new StageCredits(mqConfig.QUEUE_DownloadAndChange_TO_BaiduApi, asrCapacity));
+    }
+
+    /**
+     * 占用一个额度，额度用完时等待，不受控制的队列直接返回
+     * @param queue 队列名
+     */
+    public void acquire(String queue) throws InterruptedException {
+        StageCredits stage = stages.get(queue);
+        if (stage != null) {
+            stage.acquire();
+        }
+    }
+
+    /**
+     * 在指定时间内占用一个额度
+     * @param queue 队列名
+     * @param timeoutMillis 最长等待时间
+     * @return 超时未获得额度时返回false
+     */
+    public boolean tryAcquire(String queue, long timeoutMillis) throws InterruptedException {
+        StageCredits stage = stages.get(queue);
+        return stage == null || stage.tryAcquire(timeoutMillis);
+    }
+
+    /**
+     * 消息处理完成或进入死信后归还额度
+     * 重启前发布的消息没有占用额度，归还时不会超过容量
+     * @param queue 队列名
+     */
+    public void release(String queue) {
+        StageCredits stage = stages.get(queue);
+        if (stage != null) {
+            stage.release();
+        }
+    }
+
+    /**
+     * 各阶段的容量、在途数量和等待情况
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        stages.values().forEach(stage -> stats.add(stage.getStats()));
+        Map<String, Object> response = new HashMap<>();
+        response.put("stages", stats);
+        return response;
+    }
+
+    private static class StageCredits {
+
+        private final String queue;
+        private final int capacity;
+        private final Semaphore credits;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong throttledNanos = new AtomicLong();
+
+        StageCredits(String queue, int capacity) {
+            this.queue = queue;
+            this.capacity = capacity;
+            // 公平模式，先等待的发布方先拿到额度
+            this.credits = new Semaphore(capacity, true);
+        }
+
+        void acquire() throws InterruptedException {
+            if (!credits.tryAcquire()) {
+                long startNanos = System.nanoTime();
+                waiting.incrementAndGet();
+                try {
+                    credits.acquire();
+                } finally {
+                    waiting.decrementAndGet();
+                    throttled.incrementAndGet();
+                    throttledNanos.addAndGet(System.nanoTime() - startNanos);
+                }
+            }
+            inFlight.incrementAndGet();
+        }
+
+        boolean tryAcquire(long timeoutMillis) throws InterruptedException {
+            if (!credits.tryAcquire()) {
+                long startNanos = System.nanoTime();
+                waiting.incrementAndGet();
+                boolean acquired;
+                try {
+                    acquired = credits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+                } finally {
+                    waiting.decrementAndGet();
+                    throttled.incrementAndGet();
+                    throttledNanos.addAndGet(System.nanoTime() - startNanos);
+                }
+                if (!acquired) {
+                    timeouts.incrementAndGet();
+                    return false;
+                }
+            }
+            inFlight.incrementAndGet();
+            return true;
+        }
+
+        void release() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current == 0) {
+                    return;
+                }
+            } while (!inFlight.compareAndSet(current, current - 1));
+            credits.release();
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("queue", queue);
+            stats.put("capacity", capacity);
+            stats.put("inFlight", inFlight.get());
+            stats.put("waitingPublishers", waiting.get());
+            stats.put("throttled", throttled.get());
+            stats.put("timeouts", timeouts.get());
+            stats.put("throttledMillis", TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()));
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.alan.dy1.mq;
+
+/**
+ * 流水线队列中传递的消息，由PipelineMessageCodec编码为二进制
+ */
+public sealed interface PipelineMessage permits NewWorksMessage, AudioReadyMessage {
+
+    /**
+     * 消息id，同一份工作重复发送时保持不变
+     */
+    String messageId();
+}
@@ -0,0 +1,176 @@
+package com.alan.dy1.mq;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * 流水线消息的二进制编码
+ * 格式：1字节版本号 + 1字节消息类型 + 各字段，整数定长，字符串为2字节长度加标准UTF-8，哈希为32字节原始值
+ * 版本1的字符串是DataOutputStream.writeUTF写出的modified UTF-8（补充平面字符按代理对分别编码），仍可解码；
+ * 其他版本号直接拒绝，升级格式时先增加版本号再兼容旧版本
+ */
+public final class PipelineMessageCodec {
+
+    public static final byte VERSION = 2;
+
+    // 字符串为modified UTF-8的旧版本
+    private static final byte VERSION_MODIFIED_UTF8 = 1;
+
+    public static final String CONTENT_TYPE = "application/x-dy1-pipeline";
+
+    // 消息头中同时记录版本号，便于在管理界面查看
+    public static final String VERSION_HEADER = "x-message-version";
+
+    // 追踪id放在消息头中，不属于消息内容，缺少时不影响解码
+    public static final String TRACE_HEADER = "x-trace-id";
+
+    private static final byte TYPE_NEW_WORKS = 1;
+    private static final byte TYPE_AUDIO_READY = 2;
+
+    private static final int HASH_BYTES = 32;
+
+    private PipelineMessageCodec() {
+    }
+
+    /**
+     * 编码为AMQP消息，投递模式为默认的持久化
+     * @param payload 消息内容
+     * @param messageId 消息id，可以为null
+     */
+    public static Message toMessage(PipelineMessage payload, String messageId) {
+        return toMessage(payload, messageId, null);
+    }
+
+    /**
+     * 编码为AMQP消息并带上追踪id
+     * @param payload 消息内容
+     * @param messageId 消息id，可以为null
+     * @param traceId 追踪id，为null时不写消息头
+     */
+    public static Message toMessage(PipelineMessage payload, String messageId, String traceId) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(CONTENT_TYPE);
+        properties.setMessageId(messageId);
+        properties.setHeader(VERSION_HEADER, VERSION);
+        if (traceId != null) {
+            properties.setHeader(TRACE_HEADER, traceId);
+        }
+        return new Message(encode(payload), properties);
+    }
+
+    /**
+     * 读取消息头中的追踪id，没有时返回null
+     */
+    public static String traceId(Message message) {
+        Object traceId = message.getMessageProperties().getHeaders().get(TRACE_HEADER);
+        return traceId == null ? null : traceId.toString();
+    }
+
+    /**
+     * 从AMQP消息解码
+     * @throws MessageConversionException 版本号或类型不符，或消息体不完整
+     */
+    public static <T extends PipelineMessage> T fromMessage(Message message, Class<T> type) {
+        PipelineMessage payload = decode(message.getBody());
+        if (!type.isInstance(payload)) {
+            throw new MessageConversionException("消息类型不符，期望 " + type.getSimpleName() + "，实际 " + payload.getClass().getSimpleName());
+        }
+        return type.cast(payload);
+    }
+
+    public static byte[] encode(PipelineMessage payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            if (payload instanceof NewWorksMessage m) {
+                out.writeByte(TYPE_NEW_WORKS);
+                out.writeInt(m.creatorId());
+                writeString(out, m.url());
+                out.writeInt(m.oldCount());
+                out.writeInt(m.newCount());
+                out.writeLong(m.detectedAt());
+            } else if (payload instanceof AudioReadyMessage m) {
+                out.writeByte(TYPE_AUDIO_READY);
+                out.writeInt(m.creatorId());
+                writeNullable(out, m.videoUrl());
+                writeString(out, m.wavFileName());
+                out.write(HexFormat.of().parseHex(m.contentHash()));
+                out.writeLong(m.detectedAt());
+                out.writeLong(m.convertedAt());
+            }
+        } catch (IOException e) {
+            // 写入内存不会出现IO异常，只可能是字符串超过65535字节
+            throw new MessageConversionException("消息编码失败: " + payload, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static PipelineMessage decode(byte[] body) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            byte version = in.readByte();
+            if (version != VERSION && version != VERSION_MODIFIED_UTF8) {
+                throw new MessageConversionException("不支持的消息版本: " + version);
+            }
+            boolean modifiedUtf8 = version == VERSION_MODIFIED_UTF8;
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_NEW_WORKS:
+                    return new NewWorksMessage(in.readInt(), readString(in, modifiedUtf8), in.readInt(), in.readInt(), in.readLong());
+                case TYPE_AUDIO_READY:
+                    int creatorId = in.readInt();
+                    String videoUrl = readNullable(in, modifiedUtf8);
+                    String wavFileName = readString(in, modifiedUtf8);
+                    byte[] hash = new byte[HASH_BYTES];
+                    in.readFully(hash);
+                    return new AudioReadyMessage(creatorId, videoUrl, wavFileName, HexFormat.of().formatHex(hash),
+                            in.readLong(), in.readLong());
+                default:
+                    throw new MessageConversionException("未知的消息类型: " + type);
+            }
+        } catch (IOException e) {
+            throw new MessageConversionException("消息体不完整", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in, boolean modifiedUtf8) throws IOException {
+        return in.readBoolean() ? readString(in, modifiedUtf8) : null;
+    }
+
+    /**
+     * 2字节无符号长度加标准UTF-8
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new UTFDataFormatException("字符串超过65535字节: " + bytes.length);
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, boolean modifiedUtf8) throws IOException {
+        if (modifiedUtf8) {
+            return in.readUTF();
+        }
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
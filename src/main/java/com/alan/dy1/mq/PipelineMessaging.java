@@ -0,0 +1,49 @@
+package com.alan.dy1.mq;
+
+import java.util.Map;
+
+/**
+ * 流水线各阶段之间的消息传递
+ * 默认通过RabbitMQ，启用inmemory配置文件时在进程内的环形队列中传递，不需要消息服务器
+ * 两种模式的语义一致：处理完成才算消费成功，失败按pipeline.retry.*延迟重试，次数用完后进入死信；
+ * 发布时占用PipelineCoordinator中目标阶段的额度，阶段已满时发布方等待
+ */
+public interface PipelineMessaging {
+
+    /**
+     * 发送消息到指定阶段的队列，阶段已满时一直等待
+     * @param queue 队列名，见mqConfig
+     * @param message 消息
+     */
+    void publish(String queue, PipelineMessage message) throws InterruptedException;
+
+    /**
+     * 发送消息到指定阶段的队列，阶段已满时最多等待timeoutMillis
+     * @param queue 队列名
+     * @param message 消息
+     * @param timeoutMillis 最长等待时间
+     * @return 超时未发送时返回false
+     */
+    boolean tryPublish(String queue, PipelineMessage message, long timeoutMillis) throws InterruptedException;
+
+    /**
+     * 发送纯文本消息，用于识别结果队列
+     * @param queue 队列名
+     * @param text 文本
+     */
+    void publishText(String queue, String text);
+
+    /**
+     * 注册阶段的处理逻辑，每个队列只能注册一次，需在应用启动完成前调用
+     * @param queue 队列名
+     * @param type 消息类型
+     * @param work 处理逻辑
+     */
+    <T extends PipelineMessage> void subscribe(String queue, Class<T> type, StageWork<T> work);
+
+    /**
+     * 各队列的收发统计
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,118 @@
+package com.alan.dy1.mq;
+
+import com.alan.dy1.Config.mqConfig;
+import com.alan.dy1.trace.TraceContext;
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通过RabbitMQ传递流水线消息
+ * 各队列的消费者数量、预取数和运行的线程池见mqConfig中的监听容器工厂，确认和重试见StageMessageHandler
+ */
+@Component
+@Profile("!" + InMemoryPipelineMessaging.PROFILE)
+public class RabbitPipelineMessaging implements PipelineMessaging {
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private StageMessageHandler stageMessageHandler;
+
+    @Autowired
+    private PipelineCoordinator pipelineCoordinator;
+
+    private final Map<String, Subscription<?>> subscriptions = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> published = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String queue, PipelineMessage message) throws InterruptedException {
+        pipelineCoordinator.acquire(queue);
+        send(queue, message);
+    }
+
+    @Override
+    public boolean tryPublish(String queue, PipelineMessage message, long timeoutMillis) throws InterruptedException {
+        if (!pipelineCoordinator.tryAcquire(queue, timeoutMillis)) {
+            return false;
+        }
+        send(queue, message);
+        return true;
+    }
+
+    private void send(String queue, PipelineMessage message) {
+        try {
+            // 当前线程所处理的追踪id随消息传到下一阶段
+            rabbitTemplate.send(queue, PipelineMessageCodec.toMessage(message, message.messageId(), TraceContext.current()));
+        } catch (RuntimeException e) {
+            pipelineCoordinator.release(queue);
+            throw e;
+        }
+        published.computeIfAbsent(queue, name -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public void publishText(String queue, String text) {
+        rabbitTemplate.convertAndSend(queue, text);
+        published.computeIfAbsent(queue, name -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public <T extends PipelineMessage> void subscribe(String queue, Class<T> type, StageWork<T> work) {
+        if (subscriptions.putIfAbsent(queue, new Subscription<>(type, work)) != null) {
+            throw new IllegalStateException("队列已注册处理逻辑: " + queue);
+        }
+    }
+
+    @RabbitListener(queues = mqConfig.QUEUE_NEW_TO_DownloadAndChange, containerFactory = "downloadAudioListenerContainerFactory")
+    public void onDownloadMessage(Message message, Channel channel) throws IOException {
+        dispatch(message, channel);
+    }
+
+    @RabbitListener(queues = mqConfig.QUEUE_DownloadAndChange_TO_BaiduApi, containerFactory = "baiduApiListenerContainerFactory")
+    public void onSpeechRecognitionMessage(Message message, Channel channel) throws IOException {
+        dispatch(message, channel);
+    }
+
+    private void dispatch(Message message, Channel channel) throws IOException {
+        String queue = message.getMessageProperties().getConsumerQueue();
+        Subscription<?> subscription = subscriptions.get(queue);
+        if (subscription == null) {
+            // 没有处理逻辑时按失败处理，消息进入重试
+            stageMessageHandler.handle(message, channel, PipelineMessage.class, payload -> {
+                throw new IllegalStateException("队列未注册处理逻辑: " + queue);
+            });
+            return;
+        }
+        subscription.handle(stageMessageHandler, message, channel);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("transport", "rabbitmq");
+        Map<String, Long> counts = new HashMap<>();
+        published.forEach((queue, count) -> counts.put(queue, count.get()));
+        stats.put("published", counts);
+        stats.put("subscribed", subscriptions.keySet());
+        return stats;
+    }
+
+    private record Subscription<T extends PipelineMessage>(Class<T> type, StageWork<T> work) {
+        void handle(StageMessageHandler handler, Message message, Channel channel) throws IOException {
+            handler.handle(message, channel, type, work);
+        }
+    }
+}
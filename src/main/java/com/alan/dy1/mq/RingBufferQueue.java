@@ -0,0 +1,94 @@
+package com.alan.dy1.mq;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界多生产者多消费者环形队列，无锁
+ * 每个槽位带一个序号：序号等于写位置时可写，等于写位置+1时可读，读完后推进一圈，
+ * 生产者和消费者只在各自的位置计数器上竞争，满或空时立即返回，由调用方决定等待方式
+ */
+final class RingBufferQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂，最小为2
+     */
+    RingBufferQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入元素
+     * @return 队列已满时返回false
+     */
+    boolean offer(E element) {
+        long position = writePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    // 序号写入后消费者才能看到该槽位
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = writePosition.get();
+            } else if (diff < 0) {
+                // 槽位还没被上一圈的消费者读走
+                return false;
+            } else {
+                position = writePosition.get();
+            }
+        }
+    }
+
+    /**
+     * 读取元素
+     * @return 队列为空时返回null
+     */
+    E poll() {
+        long position = readPosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (readPosition.compareAndSet(position, position + 1)) {
+                    E element = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = readPosition.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                position = readPosition.get();
+            }
+        }
+    }
+
+    /**
+     * 当前元素数量的近似值
+     */
+    int size() {
+        return (int) Math.max(0, writePosition.get() - readPosition.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
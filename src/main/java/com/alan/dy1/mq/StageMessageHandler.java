@@ -0,0 +1,106 @@
+package com.alan.dy1.mq;
+
+import com.alan.dy1.Config.mqConfig;
+import com.alan.dy1.trace.TraceContext;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * RabbitMQ模式下流水线各阶段消息的手动确认
+ * 处理完成后才ack，失败时按重试次数转入对应的延迟队列（消息头包括追踪id一并复制），超过次数后拒绝进入死信队列；
+ * ack或进入死信后归还阶段额度，重试期间额度一直占用
+ * 进程在处理途中退出时消息未确认，由RabbitMQ重新投递
+ */
+@Component
+@Profile("!" + InMemoryPipelineMessaging.PROFILE)
+public class StageMessageHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StageMessageHandler.class);
+
+    // 记录已重试次数的消息头
+    public static final String RETRY_HEADER = "x-retry-count";
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private PipelineCoordinator pipelineCoordinator;
+
+    @Value("${pipeline.retry.max-attempts:3}")
+    private int maxRetries;
+
+    /**
+     * 解码消息、执行处理逻辑并确认消息
+     * 无法解码的消息重试也不会成功，直接转入死信队列
+     * @param message 收到的消息
+     * @param channel 消费者所在的信道
+     * @param type 期望的消息类型
+     * @param work 处理逻辑
+     */
+    public <T extends PipelineMessage> void handle(Message message, Channel channel, Class<T> type, StageWork<T> work) throws IOException {
+        MessageProperties properties = message.getMessageProperties();
+        long deliveryTag = properties.getDeliveryTag();
+        String queue = properties.getConsumerQueue();
+        T payload;
+        try {
+            payload = PipelineMessageCodec.fromMessage(message, type);
+        } catch (MessageConversionException e) {
+            logger.error("无法解码的消息，转入死信队列: {} {}", queue, e.getMessage());
+            channel.basicNack(deliveryTag, false, false);
+            pipelineCoordinator.release(queue);
+            return;
+        }
+        // 处理期间恢复消息头中的追踪id，处理中发布的消息继续带上它
+        try (TraceContext.Scope scope = TraceContext.open(PipelineMessageCodec.traceId(message))) {
+            work.process(payload);
+            channel.basicAck(deliveryTag, false);
+            pipelineCoordinator.release(queue);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            int attempt = getRetryCount(message) + 1;
+            if (attempt > maxRetries) {
+                // 拒绝且不重新入队，由队列的死信交换机转入死信队列
+                logger.error("消息处理失败 {} 次，转入死信队列: {} {}", maxRetries, queue, payload, e);
+                channel.basicNack(deliveryTag, false, false);
+                pipelineCoordinator.release(queue);
+                return;
+            }
+            logger.warn("消息处理失败，第 {} 次重试: {} {} {}", attempt, queue, payload, e.getMessage());
+            // 先写入延迟队列再确认原消息，两步之间退出最多造成一次重复投递
+            rabbitTemplate.send("", mqConfig.retryQueueName(queue, attempt), retryMessage(message, attempt));
+            channel.basicAck(deliveryTag, false);
+        }
+    }
+
+    /**
+     * 复制消息体、消息id和消息头，投递模式使用默认的持久化
+     */
+    private Message retryMessage(Message message, int attempt) {
+        MessageProperties source = message.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        properties.setMessageId(source.getMessageId());
+        source.getHeaders().forEach(properties::setHeader);
+        properties.setHeader(RETRY_HEADER, attempt);
+        return new Message(message.getBody(), properties);
+    }
+
+    private int getRetryCount(Message message) {
+        Object count = message.getMessageProperties().getHeaders().get(RETRY_HEADER);
+        return count instanceof Number ? ((Number) count).intValue() : 0;
+    }
+}
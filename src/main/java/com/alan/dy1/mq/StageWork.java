@@ -0,0 +1,10 @@
+package com.alan.dy1.mq;
+
+/**
+ * 流水线阶段的处理逻辑，抛出异常表示需要重试
+ */
+@FunctionalInterface
+public interface StageWork<T extends PipelineMessage> {
+
+    void process(T payload) throws Exception;
+}
@@ -0,0 +1,49 @@
+package com.alan.dy1.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 有上限的输出缓冲区
+ * 只保留前maxBytes字节，超出部分继续读取丢弃，保证子进程不会因管道写满而阻塞
+ */
+class BoundedOutputBuffer {
+
+    private final int maxBytes;
+    private final ByteArrayOutputStream buffer;
+    private long discardedBytes;
+
+    BoundedOutputBuffer(int maxBytes) {
+        this.maxBytes = maxBytes;
+        this.buffer = new ByteArrayOutputStream(Math.min(maxBytes, 8192));
+    }
+
+    /**
+     * 读取输入流直到结束
+     */
+    void drain(InputStream inputStream) throws IOException {
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = inputStream.read(chunk)) != -1) {
+            append(chunk, read);
+        }
+    }
+
+    private synchronized void append(byte[] chunk, int length) {
+        int writable = Math.min(length, maxBytes - buffer.size());
+        if (writable > 0) {
+            buffer.write(chunk, 0, writable);
+        }
+        discardedBytes += length - Math.max(writable, 0);
+    }
+
+    synchronized String asString() {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    synchronized boolean isTruncated() {
+        return discardedBytes > 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.alan.dy1.process;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个脚本的执行统计：调用次数、耗时、退出码分布、超时与取消次数
+ */
+class ProcessMetrics {
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder running = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder startFailures = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final Map<Integer, LongAdder> exitCodes = new ConcurrentHashMap<>();
+
+    void started() {
+        invocations.increment();
+        running.increment();
+    }
+
+    void startFailed() {
+        invocations.increment();
+        startFailures.increment();
+    }
+
+    void exited(int exitCode, long elapsedMillis) {
+        exitCodes.computeIfAbsent(exitCode, code -> new LongAdder()).increment();
+        finished(elapsedMillis);
+    }
+
+    void timedOut(long elapsedMillis) {
+        timeouts.increment();
+        finished(elapsedMillis);
+    }
+
+    void cancelled(long elapsedMillis) {
+        cancelled.increment();
+        finished(elapsedMillis);
+    }
+
+    private void finished(long elapsedMillis) {
+        running.decrement();
+        totalMillis.add(elapsedMillis);
+        maxMillis.accumulateAndGet(elapsedMillis, Math::max);
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long finished = invocations.sum() - running.sum() - startFailures.sum();
+        snapshot.put("invocations", invocations.sum());
+        snapshot.put("running", running.sum());
+        snapshot.put("timeouts", timeouts.sum());
+        snapshot.put("cancelled", cancelled.sum());
+        snapshot.put("startFailures", startFailures.sum());
+        snapshot.put("avgMillis", finished > 0 ? totalMillis.sum() / finished : 0);
+        snapshot.put("maxMillis", maxMillis.get());
+        Map<Integer, Long> codes = new TreeMap<>();
+        exitCodes.forEach((code, count) -> codes.put(code, count.sum()));
+        snapshot.put("exitCodes", codes);
+        return snapshot;
+    }
+}
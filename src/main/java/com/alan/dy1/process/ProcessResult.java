@@ -0,0 +1,44 @@
+package com.alan.dy1.process;
+
+/**
+ * 外部进程执行结果
+ */
+public class ProcessResult {
+
+    private final int exitCode;
+    private final String stdout;
+    private final String stderr;
+    private final boolean truncated;
+    private final long elapsedMillis;
+
+    public ProcessResult(int exitCode, String stdout, String stderr, boolean truncated, long elapsedMillis) {
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.truncated = truncated;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public String getStdout() {
+        return stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    /**
+     * stdout或stderr是否超出缓冲上限被截断
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,192 @@
+package com.alan.dy1.process;
+
+import com.alan.dy1.util.ConcurrencyLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 外部进程执行器
+ * 异步启动进程，并发排空stdout/stderr到有上限的缓冲区，
+ * 超过截止时间或被取消时结束整个进程树，同时按脚本统计耗时和退出码
+ */
+@Component
+public class ProcessRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+
+    // 单个输出流最多保留的字节数
+    @Value("${process.max-output-bytes:1048576}")
+    private int maxOutputBytes;
+
+    // 同时运行的一次性外部进程数，调用方线程不再受线程池大小约束时由它限制子进程数量
+    @Value("${process.max-concurrent:8}")
+    private int maxConcurrentProcesses;
+
+    private ConcurrencyLimiter processLimiter;
+
+    // 排空输出流的线程，每个进程占用两个，进程结束即释放
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool(daemonThreads("process-io"));
+    // 截止时间检查
+    private final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("process-deadline"));
+
+    private final Map<String, ProcessMetrics> metrics = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        processLimiter = new ConcurrencyLimiter("process", maxConcurrentProcesses);
+    }
+
+    /**
+     * 异步执行外部进程
+     * 返回的future在进程退出且输出读完后完成；超时以ProcessTimeoutException异常完成；
+     * 调用cancel会结束整个进程树；同时运行的进程数达到上限时在调用线程上等待
+     * @param scriptName 统计使用的脚本名
+     * @param command 命令及参数
+     * @param workingDirectory 工作目录
+     * @param environment 额外的环境变量
+     * @param timeout 截止时间
+     * @return 执行结果
+     */
+    public CompletableFuture<ProcessResult> run(String scriptName, List<String> command, File workingDirectory,
+                                                Map<String, String> environment, Duration timeout) {
+        ProcessMetrics scriptMetrics = metrics.computeIfAbsent(scriptName, name -> new ProcessMetrics());
+        CompletableFuture<ProcessResult> result = new CompletableFuture<>();
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(workingDirectory);
+        processBuilder.environment().putAll(environment);
+
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = processLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        Process process;
+        long startNanos = System.nanoTime();
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            permit.close();
+            scriptMetrics.startFailed();
+            result.completeExceptionally(e);
+            return result;
+        }
+        scriptMetrics.started();
+
+        // stdout和stderr并发排空，任何一个流写满都不会卡住子进程
+        BoundedOutputBuffer stdout = new BoundedOutputBuffer(maxOutputBytes);
+        BoundedOutputBuffer stderr = new BoundedOutputBuffer(maxOutputBytes);
+        CompletableFuture<Void> stdoutDrained = drain(process.getInputStream(), stdout);
+        CompletableFuture<Void> stderrDrained = drain(process.getErrorStream(), stderr);
+
+        ScheduledFuture<?> deadline = deadlineScheduler.schedule(() -> {
+            if (result.completeExceptionally(new ProcessTimeoutException(
+                    scriptName + " 超过截止时间 " + timeout.toMillis() + "ms，已结束进程树"))) {
+                ProcessTrees.kill(process.toHandle());
+                scriptMetrics.timedOut(elapsedMillis(startNanos));
+                logger.warn("{} 执行超时，已结束进程树 pid={}", scriptName, process.pid());
+            }
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        process.onExit()
+                .thenCombine(CompletableFuture.allOf(stdoutDrained, stderrDrained), (exited, drained) -> exited)
+                .whenComplete((exited, error) -> {
+                    deadline.cancel(false);
+                    long elapsed = elapsedMillis(startNanos);
+                    if (error != null) {
+                        if (result.completeExceptionally(error)) {
+                            scriptMetrics.exited(-1, elapsed);
+                        }
+                        return;
+                    }
+                    ProcessResult processResult = new ProcessResult(exited.exitValue(), stdout.asString(), stderr.asString(),
+                            stdout.isTruncated() || stderr.isTruncated(), elapsed);
+                    if (result.complete(processResult)) {
+                        scriptMetrics.exited(exited.exitValue(), elapsed);
+                    }
+                });
+
+        // 调用方取消时结束进程树，无论以何种方式完成都归还许可
+        result.whenComplete((processResult, error) -> {
+            permit.close();
+            if (error instanceof CancellationException) {
+                deadline.cancel(false);
+                ProcessTrees.kill(process.toHandle());
+                scriptMetrics.cancelled(elapsedMillis(startNanos));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 获取各脚本的执行统计
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        metrics.forEach((name, scriptMetrics) -> snapshot.put(name, scriptMetrics.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * 外部进程并发统计
+     */
+    public Map<String, Object> getConcurrencyStats() {
+        return processLimiter.getStats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlineScheduler.shutdownNow();
+        streamExecutor.shutdownNow();
+    }
+
+    private CompletableFuture<Void> drain(InputStream inputStream, BoundedOutputBuffer buffer) {
+        return CompletableFuture.runAsync(() -> {
+            try (InputStream in = inputStream) {
+                buffer.drain(in);
+            } catch (IOException e) {
+                // 进程被结束时流会被关闭，属于正常情况
+                logger.debug("读取进程输出结束: {}", e.getMessage());
+            }
+        }, streamExecutor);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
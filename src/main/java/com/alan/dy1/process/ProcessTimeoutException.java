@@ -0,0 +1,13 @@
+package com.alan.dy1.process;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 外部进程超过截止时间，整个进程树已被结束
+ */
+public class ProcessTimeoutException extends TimeoutException {
+
+    public ProcessTimeoutException(String message) {
+        super(message);
+    }
+}
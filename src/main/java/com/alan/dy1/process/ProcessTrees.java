@@ -0,0 +1,23 @@
+package com.alan.dy1.process;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 进程树工具
+ */
+public final class ProcessTrees {
+
+    private ProcessTrees() {
+    }
+
+    /**
+     * 强制结束进程及其所有子孙进程（Python脚本启动的浏览器、驱动等）
+     * 先收集子孙进程再结束父进程，避免父进程退出后子进程被过继而找不到
+     */
+    public static void kill(ProcessHandle process) {
+        List<ProcessHandle> descendants = process.descendants().collect(Collectors.toList());
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+}
@@ -0,0 +1,235 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.Douyin;
+import com.alan.dy1.util.CreatorUrls;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 博主数据读穿透缓存
+ * 同时按id和规范化URL索引，超过容量时淘汰最久未访问的博主；
+ * 全表完整加载过一次且未发生淘汰时，分页读取也直接走内存；完整状态只保持douyin.cache.complete-ttl-ms，
+ * 过期后分页回到数据库，期间其他途径（直接写SQL、其他节点）新增的博主被加载，已删除的博主从缓存移除
+ * 缓存中的对象不直接交给调用方：读取返回副本，修改通过update在锁内进行
+ */
+@Component
+@DependsOn("douyinUrlMigration")
+public class CreatorCache {
+
+    @Autowired
+    private DouyinRepository douyinRepository;
+
+    @Value("${douyin.cache.max-size:10000}")
+    private int maxSize;
+
+    // 完整状态的有效期
+    @Value("${douyin.cache.complete-ttl-ms:300000}")
+    private long completeTtlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Map<String, Integer> urlIndex = new HashMap<>();
+    private final TreeSet<Integer> idIndex = new TreeSet<>();
+    private Map<Integer, Douyin> entries;
+
+    // 缓存是否包含全表数据，超过completeUntil后视为不完整
+    private boolean complete;
+    private long completeUntil;
+    // 本轮完整加载开始时的淘汰次数，用于判断加载过程中是否有数据被淘汰
+    private long evictionsAtPassStart = -1;
+
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Douyin> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                unindex(eldest.getValue());
+                evictions.incrementAndGet();
+                complete = false;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 按id查询，未命中时读数据库并放入缓存
+     */
+    public Optional<Douyin> findById(Integer id) {
+        synchronized (this) {
+            Douyin cached = entries.get(id);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached.copy());
+            }
+        }
+        misses.incrementAndGet();
+        Optional<Douyin> loaded = douyinRepository.findById(id);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    /**
+     * 按URL查询，URL会先规范化，未命中时读数据库并放入缓存
+     */
+    public Optional<Douyin> findByUrl(String url) {
+        String normalized = CreatorUrls.normalize(url);
+        synchronized (this) {
+            Integer id = urlIndex.get(normalized);
+            Douyin cached = id == null ? null : entries.get(id);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached.copy());
+            }
+            if (isComplete()) {
+                // 全表都在缓存中，未命中即不存在
+                hits.incrementAndGet();
+                return Optional.empty();
+            }
+        }
+        misses.incrementAndGet();
+        Optional<Douyin> loaded = douyinRepository.findByUrl(normalized);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    /**
+     * 按id游标分页读取，缓存完整时直接从内存返回，否则读数据库并顺带填充缓存，
+     * 同时移除该页id范围内数据库中已不存在的博主
+     * @param afterId 上一页最后一条的id，首页传0
+     * @param limit 每页数量
+     */
+    public List<Douyin> findPage(Integer afterId, int limit) {
+        synchronized (this) {
+            if (isComplete()) {
+                hits.incrementAndGet();
+                List<Douyin> page = new ArrayList<>(limit);
+                for (Integer id : idIndex.tailSet(afterId, false)) {
+                    if (page.size() == limit) {
+                        break;
+                    }
+                    page.add(entries.get(id).copy());
+                }
+                return page;
+            }
+            if (afterId == 0) {
+                evictionsAtPassStart = evictions.get();
+            }
+        }
+        misses.incrementAndGet();
+        List<Douyin> page = douyinRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+        synchronized (this) {
+            page.forEach(this::put);
+            // 最后一页之后的id在数据库中都不存在
+            int upTo = page.size() < limit ? Integer.MAX_VALUE : page.get(page.size() - 1).getId();
+            removeMissing(afterId, upTo, page);
+            // 从头读到尾且期间没有淘汰，说明全表都已在缓存中
+            if (page.size() < limit && evictionsAtPassStart == evictions.get()) {
+                complete = true;
+                completeUntil = System.currentTimeMillis() + completeTtlMillis;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 移除 (afterId, upTo] 范围内不在page中的缓存博主，它们已被其他途径删除
+     */
+    private void removeMissing(Integer afterId, int upTo, List<Douyin> page) {
+        List<Integer> stale = new ArrayList<>();
+        int next = 0;
+        for (Integer id : idIndex.subSet(afterId, false, upTo, true)) {
+            while (next < page.size() && page.get(next).getId() < id) {
+                next++;
+            }
+            if (next == page.size() || !page.get(next).getId().equals(id)) {
+                stale.add(id);
+            }
+        }
+        for (Integer id : stale) {
+            unindex(entries.remove(id));
+        }
+    }
+
+    private boolean isComplete() {
+        return complete && System.currentTimeMillis() < completeUntil;
+    }
+
+    /**
+     * 写入或更新缓存，保存的是副本，调用方之后对douyin的修改不影响缓存
+     */
+    public synchronized void put(Douyin douyin) {
+        if (douyin.getId() == null) {
+            return;
+        }
+        Douyin previous = entries.put(douyin.getId(), douyin.copy());
+        if (previous != null) {
+            unindex(previous);
+        }
+        urlIndex.put(CreatorUrls.normalize(douyin.getUrl()), douyin.getId());
+        idIndex.add(douyin.getId());
+    }
+
+    /**
+     * 在锁内修改缓存中的博主，只改动需要的字段，不会覆盖其他线程同时写入的状态；博主不在缓存中时忽略
+     * @param id 博主id
+     * @param change 修改逻辑，不能修改id和url
+     */
+    public synchronized void update(Integer id, Consumer<Douyin> change) {
+        Douyin cached = entries.get(id);
+        if (cached != null) {
+            change.accept(cached);
+        }
+    }
+
+    /**
+     * 有新博主写入但不知道其id时调用，之后的分页和URL查询会回到数据库
+     */
+    public synchronized void invalidateAll() {
+        complete = false;
+        evictionsAtPassStart = -1;
+    }
+
+    /**
+     * 获取缓存命中统计
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("complete", isComplete());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private void unindex(Douyin douyin) {
+        String url = CreatorUrls.normalize(douyin.getUrl());
+        if (douyin.getId().equals(urlIndex.get(url))) {
+            urlIndex.remove(url);
+        }
+        idIndex.remove(douyin.getId());
+    }
+}
@@ -0,0 +1,95 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.Douyin;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 博主检查状态写缓冲
+ * 检查过程中只记录每个博主的最新状态，攒够一批、定时或检查结束时统一批量写回，
+ * 同一博主多次变化只写最后一次
+ */
+@Component
+public class CreatorStateBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreatorStateBuffer.class);
+
+    @Autowired
+    private DouyinRepository douyinRepository;
+
+    @Value("${douyin.write.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Integer, CreatorStateUpdate> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 记录博主的最新检查状态，不修改作品数，达到批大小时立即写回
+     */
+    public void add(Douyin douyin) {
+        add(CreatorStateUpdate.of(douyin));
+    }
+
+    /**
+     * 记录博主的最新检查状态和作品数
+     */
+    public void addWithWorkNumber(Douyin douyin) {
+        add(CreatorStateUpdate.withWorkNumber(douyin));
+    }
+
+    private void add(CreatorStateUpdate update) {
+        pending.merge(update.id(), update, (older, newer) -> newer.mergeOlder(older));
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 把缓冲中的状态批量写回数据库
+     * @return 写回的行数
+     */
+    @Scheduled(fixedDelayString = "${douyin.write.flush-interval-ms:5000}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<CreatorStateUpdate> batch = new ArrayList<>(pending.size());
+        for (Integer id : new ArrayList<>(pending.keySet())) {
+            CreatorStateUpdate update = pending.remove(id);
+            if (update != null) {
+                batch.add(update);
+            }
+        }
+        try {
+            int rows = douyinRepository.batchUpdateCheckState(batch);
+            logger.debug("批量写回博主状态 {} 条", rows);
+            return rows;
+        } catch (RuntimeException e) {
+            // 写回失败时放回缓冲，已有更新的博主保留较新的状态
+            batch.forEach(update -> pending.merge(update.id(), update, (newer, older) -> newer.mergeOlder(older)));
+            logger.error("批量写回博主状态失败，{} 条待重试", batch.size(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * 当前待写回的数量
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,39 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.Douyin;
+
+import java.time.LocalDateTime;
+
+/**
+ * 博主检查状态的快照，用于批量写回数据库
+ * workNumber为null时不修改作品数，作品数的增加由下载阶段完成后写入
+ */
+public record CreatorStateUpdate(Integer id, Integer workNumber, LocalDateTime lastCheckedAt,
+                                 LocalDateTime lastChangedAt, Long avgPostIntervalSeconds) {
+
+    /**
+     * 只包含检查状态，不修改作品数
+     */
+    public static CreatorStateUpdate of(Douyin douyin) {
+        return new CreatorStateUpdate(douyin.getId(), null, douyin.getLastCheckedAt(),
+                douyin.getLastChangedAt(), douyin.getAvgPostIntervalSeconds());
+    }
+
+    /**
+     * 包含检查状态和作品数
+     */
+    public static CreatorStateUpdate withWorkNumber(Douyin douyin) {
+        return new CreatorStateUpdate(douyin.getId(), douyin.getWorkNumber(), douyin.getLastCheckedAt(),
+                douyin.getLastChangedAt(), douyin.getAvgPostIntervalSeconds());
+    }
+
+    /**
+     * 合并同一博主较早的快照，保留其中尚未写回的作品数
+     */
+    CreatorStateUpdate mergeOlder(CreatorStateUpdate older) {
+        if (workNumber != null || older.workNumber == null) {
+            return this;
+        }
+        return new CreatorStateUpdate(id, older.workNumber, lastCheckedAt, lastChangedAt, avgPostIntervalSeconds);
+    }
+}
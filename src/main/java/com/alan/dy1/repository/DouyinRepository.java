@@ -1,16 +1,40 @@
 package com.alan.dy1.repository;
 
 import com.alan.dy1.domain.Douyin;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface DouyinRepository extends JpaRepository<Douyin, Integer> {
+public interface DouyinRepository extends JpaRepository<Douyin, Integer>, DouyinRepositoryCustom {
     Optional<Douyin> findByUrl(String url);
     
     // 获取所有抖音数据对象
     List<Douyin> findAll();
-}
\ No newline at end of file
+    
+    // 按id游标分页：返回id大于afterId的前limit条，翻页代价与页码无关
+    List<Douyin> findByIdGreaterThanOrderByIdAsc(Integer afterId, Limit limit);
+    
+    // 流式读取全部数据，MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行返回结果，需在事务内消费
+    @Query("select d from Douyin d order by d.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Douyin> streamAllOrderById();
+    
+    // 作品数只增不减，重复或乱序完成的下载不会把作品数改小
+    @Modifying
+    @Query("update Douyin d set d.workNumber = :workNumber where d.id = :id and d.workNumber < :workNumber")
+    int advanceWorkNumber(@Param("id") Integer id, @Param("workNumber") int workNumber);
+}
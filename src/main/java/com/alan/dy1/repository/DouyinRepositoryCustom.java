@@ -0,0 +1,26 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.Douyin;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 抖音数据批量写入接口，绕过逐条save，使用JDBC批处理
+ */
+public interface DouyinRepositoryCustom {
+
+    /**
+     * 批量插入抖音数据，全部成功或全部回滚
+     * @param douyins 抖音数据列表
+     * @return 插入的行数
+     */
+    int batchInsert(List<Douyin> douyins);
+
+    /**
+     * 批量更新作品数和检查状态
+     * @param updates 每个博主的最新状态
+     * @return 更新的行数
+     */
+    int batchUpdateCheckState(Collection<CreatorStateUpdate> updates);
+}
@@ -0,0 +1,69 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.Douyin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 抖音数据批量写入实现
+ * 实体使用IDENTITY主键，Hibernate无法对插入做批处理，这里直接用JDBC批处理，
+ * 配合MySQL连接参数rewriteBatchedStatements=true，一批数据只需一次往返；
+ * 批量插入在一个事务中完成，任何一批失败时整批回滚，不会留下部分写入的数据
+ */
+public class DouyinRepositoryImpl implements DouyinRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO douyin (url, dy_name, quantity, relevant, work_number) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_STATE_SQL =
+            "UPDATE douyin SET work_number = COALESCE(?, work_number), last_checked_at = ?, last_changed_at = ?, avg_post_interval_seconds = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 每批提交的行数
+    @Value("${douyin.write.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public int batchInsert(List<Douyin> douyins) {
+        int[][] results = jdbcTemplate.batchUpdate(INSERT_SQL, douyins, batchSize, (ps, douyin) -> {
+            // 包装类型可能为null，按类型绑定，交给数据库的非空约束报错而不是在这里抛NPE
+            ps.setString(1, douyin.getUrl());
+            ps.setString(2, douyin.getName());
+            ps.setObject(3, douyin.getQuantity(), Types.INTEGER);
+            ps.setObject(4, douyin.getRelevant(), Types.BOOLEAN);
+            ps.setObject(5, douyin.getWorkNumber(), Types.INTEGER);
+        });
+        return countRows(results);
+    }
+
+    @Override
+    public int batchUpdateCheckState(Collection<CreatorStateUpdate> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int[][] results = jdbcTemplate.batchUpdate(UPDATE_STATE_SQL, new ArrayList<>(updates), batchSize, (ps, update) -> {
+            ps.setObject(1, update.workNumber(), Types.INTEGER);
+            ps.setObject(2, update.lastCheckedAt(), Types.TIMESTAMP);
+            ps.setObject(3, update.lastChangedAt(), Types.TIMESTAMP);
+            ps.setObject(4, update.avgPostIntervalSeconds(), Types.BIGINT);
+            ps.setInt(5, update.id());
+        });
+        return countRows(results);
+    }
+
+    private static int countRows(int[][] results) {
+        // 驱动改写批处理后可能返回SUCCESS_NO_INFO(-2)，按1行计
+        return Arrays.stream(results).flatMapToInt(Arrays::stream).map(rows -> rows < 0 ? 1 : rows).sum();
+    }
+}
@@ -0,0 +1,126 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.util.CreatorUrls;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 博主URL规范化迁移，启动时执行一次
+ * 把库中未规范化的URL改为CreatorUrls.normalize的结果；规范化后重复的博主只保留id最小的一条，作品数取其中最大值，
+ * 其余删除；最后在url列上补建唯一约束uk_douyin_url。数据已规范化时只做一次全表读取
+ * 在JPA建表之后、博主缓存之前执行，缓存按规范化的URL查询时不会漏掉旧数据
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class DouyinUrlMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(DouyinUrlMigration.class);
+
+    private static final String TABLE = "douyin";
+    private static final String INDEX_NAME = "uk_douyin_url";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${douyin.migration.normalize-urls:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    public void migrate() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        if (!tableExists()) {
+            logger.warn("数据表 {} 不存在，跳过URL规范化迁移", TABLE);
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> normalizeUrls());
+        if (!hasUniqueUrlIndex()) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + INDEX_NAME + " UNIQUE (url)");
+            logger.info("已在 {}.url 上创建唯一约束 {}", TABLE, INDEX_NAME);
+        }
+    }
+
+    private void normalizeUrls() {
+        List<CreatorRow> rows = jdbcTemplate.query("SELECT id, url, work_number FROM " + TABLE + " ORDER BY id",
+                (rs, rowNum) -> new CreatorRow(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+        // 规范化URL -> 保留的博主，按id升序遍历，先出现的id最小
+        Map<String, CreatorRow> kept = new HashMap<>();
+        Map<Integer, Integer> workNumbers = new HashMap<>();
+        List<Object[]> duplicates = new ArrayList<>();
+        for (CreatorRow row : rows) {
+            String normalized = CreatorUrls.normalize(row.url());
+            CreatorRow first = kept.putIfAbsent(normalized, row);
+            if (first != null) {
+                duplicates.add(new Object[]{row.id()});
+                // 重复的博主可能已经下载过更多作品，保留较大的作品数，避免重复下载
+                if (row.workNumber() > workNumbers.getOrDefault(first.id(), first.workNumber())) {
+                    workNumbers.put(first.id(), row.workNumber());
+                }
+            }
+        }
+        List<Object[]> renames = new ArrayList<>();
+        kept.forEach((normalized, row) -> {
+            if (!normalized.equals(row.url())) {
+                renames.add(new Object[]{normalized, row.id()});
+            }
+        });
+        if (duplicates.isEmpty() && renames.isEmpty()) {
+            return;
+        }
+        // 先删除重复的博主再改URL，已有唯一约束时改名不会与待删除的行冲突
+        jdbcTemplate.batchUpdate("DELETE FROM " + TABLE + " WHERE id = ?", duplicates);
+        jdbcTemplate.batchUpdate("UPDATE " + TABLE + " SET url = ? WHERE id = ?", renames);
+        List<Object[]> advances = new ArrayList<>();
+        workNumbers.forEach((id, workNumber) -> advances.add(new Object[]{workNumber, id}));
+        jdbcTemplate.batchUpdate("UPDATE " + TABLE + " SET work_number = ? WHERE id = ?", advances);
+        logger.info("博主URL规范化完成: 修改 {} 条，合并删除重复 {} 条", renames.size(), duplicates.size());
+    }
+
+    private boolean tableExists() throws SQLException {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection();
+             ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, TABLE, new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * url列上是否已有唯一索引（JPA建表时或之前手动创建的都算）
+     */
+    private boolean hasUniqueUrlIndex() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, TABLE, true, false)) {
+                while (indexes.next()) {
+                    if ("url".equalsIgnoreCase(indexes.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    private record CreatorRow(int id, String url, int workNumber) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.ProcessedMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProcessedMessageRepository extends JpaRepository<ProcessedMessage, String> {
+
+    // 某个博主的全部消息键，键以"博主id:"开头
+    @Query("select p.messageKey from ProcessedMessage p where p.messageKey like concat(:prefix, '%')")
+    List<String> findKeysByPrefix(@Param("prefix") String prefix);
+
+    // 清理早于cutoff完成的记录
+    @Modifying
+    @Query("delete from ProcessedMessage p where p.createdAt < :cutoff")
+    int deleteCompletedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,9 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.TranscriptCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TranscriptCacheRepository extends JpaRepository<TranscriptCacheEntry, String> {
+}
@@ -0,0 +1,9 @@
+package com.alan.dy1.repository;
+
+import com.alan.dy1.domain.Transcript;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TranscriptRepository extends JpaRepository<Transcript, Long> {
+}
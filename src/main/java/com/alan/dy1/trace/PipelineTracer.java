@@ -0,0 +1,184 @@
+package com.alan.dy1.trace;
+
+import com.alan.dy1.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流水线追踪
+ * 发现新作品时创建追踪id，随消息头传到下载和识别阶段，各阶段的耗时同时计入按阶段的直方图和所属追踪；
+ * 最近的追踪保留在内存中，用于查询从发现新作品到识别完成最慢的记录
+ */
+@Component
+public class PipelineTracer {
+
+    // 发现新作品到下载阶段开始处理（含重试等待）
+    public static final String STAGE_DOWNLOAD_QUEUE = "download-queue";
+    // 脚本解析地址或下载音频
+    public static final String STAGE_DOWNLOAD = "download";
+    // 下载阶段的FFmpeg转换或解码
+    public static final String STAGE_CONVERSION = "conversion";
+    // 识别阶段把已转换的音频文件解码为PCM（开启VAD或非PCM WAV时），不计入conversion，避免同一作品记两次转换
+    public static final String STAGE_DECODE = "decode";
+    // 转换完成到识别阶段开始处理（含重试等待）
+    public static final String STAGE_ASR_QUEUE = "asr-queue";
+    // 调用识别接口
+    public static final String STAGE_RECOGNITION = "recognition";
+    // 发现新作品到识别结果入库
+    public static final String STAGE_END_TO_END = "end-to-end";
+
+    // 内存中保留的最近追踪数量
+    @Value("${pipeline.trace.max-traces:1000}")
+    private int maxTraces;
+
+    private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+
+    // 按创建顺序保留最近的追踪，超出数量时淘汰最早的
+    private final LinkedHashMap<String, TraceRecord> traces = new LinkedHashMap<>();
+
+    /**
+     * 创建追踪
+     * @param creatorId 博主id
+     * @param url 博主主页
+     * @param detectedAt 发现新作品的时间（毫秒时间戳）
+     * @return 追踪id
+     */
+    public String start(int creatorId, String url, long detectedAt) {
+        String traceId = TraceContext.newTraceId();
+        synchronized (traces) {
+            traces.put(traceId, new TraceRecord(traceId, creatorId, url, detectedAt));
+            while (traces.size() > Math.max(1, maxTraces)) {
+                traces.remove(traces.keySet().iterator().next());
+            }
+        }
+        return traceId;
+    }
+
+    /**
+     * 丢弃没有发出的追踪
+     */
+    public void discard(String traceId) {
+        synchronized (traces) {
+            traces.remove(traceId);
+        }
+    }
+
+    /**
+     * 开始计时一个阶段，关闭返回的Span时记录耗时，归属于当前线程的追踪
+     * @param stage 阶段名
+     * @param source 处理对象，如音频地址或文件名
+     */
+    public Span span(String stage, String source) {
+        return new Span(stage, source, TraceContext.current(), System.nanoTime());
+    }
+
+    /**
+     * 直接记录一个阶段的耗时，用于由时间戳算出的排队时长
+     * @param stage 阶段名
+     * @param source 处理对象
+     * @param durationMillis 耗时（毫秒）
+     */
+    public void record(String stage, String source, long durationMillis) {
+        record(stage, source, TraceContext.current(), Math.max(0, durationMillis), System.currentTimeMillis());
+    }
+
+    /**
+     * 识别结果入库，记录从发现新作品到此刻的总耗时
+     * @param source 处理对象
+     * @param detectedAt 发现新作品的时间（毫秒时间戳）
+     */
+    public void complete(String source, long detectedAt) {
+        long now = System.currentTimeMillis();
+        String traceId = TraceContext.current();
+        histogram(STAGE_END_TO_END).record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - detectedAt)));
+        TraceRecord trace = find(traceId);
+        if (trace != null) {
+            trace.transcriptSaved(now);
+        }
+    }
+
+    /**
+     * 各阶段的耗时分布
+     */
+    public Map<String, Object> getStageStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        stages.forEach((stage, histogram) -> stats.put(stage, histogram.snapshot()));
+        return stats;
+    }
+
+    /**
+     * 最近的追踪中总耗时最长的几条
+     * @param limit 返回条数
+     */
+    public List<Map<String, Object>> getSlowestTraces(int limit) {
+        List<TraceRecord> recent;
+        synchronized (traces) {
+            recent = new ArrayList<>(traces.values());
+        }
+        recent.sort(Comparator.comparingLong(TraceRecord::elapsedMillis).reversed());
+        List<Map<String, Object>> slowest = new ArrayList<>();
+        for (TraceRecord trace : recent.subList(0, Math.min(Math.max(0, limit), recent.size()))) {
+            slowest.add(trace.snapshot());
+        }
+        return slowest;
+    }
+
+    private void record(String stage, String source, String traceId, long durationMillis, long endedAt) {
+        histogram(stage).record(TimeUnit.MILLISECONDS.toNanos(durationMillis));
+        TraceRecord trace = find(traceId);
+        if (trace != null) {
+            trace.addSpan(stage, source, endedAt, durationMillis);
+        }
+    }
+
+    private LatencyHistogram histogram(String stage) {
+        return stages.computeIfAbsent(stage, name -> new LatencyHistogram());
+    }
+
+    private TraceRecord find(String traceId) {
+        if (traceId == null) {
+            return null;
+        }
+        synchronized (traces) {
+            return traces.get(traceId);
+        }
+    }
+
+    /**
+     * 一个阶段的计时，重复关闭只记录一次
+     */
+    public class Span implements AutoCloseable {
+
+        private final String stage;
+        private final String source;
+        private final String traceId;
+        private final long startNanos;
+        private boolean closed;
+
+        private Span(String stage, String source, String traceId, long startNanos) {
+            this.stage = stage;
+            this.source = source;
+            this.traceId = traceId;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            record(stage, source, traceId, durationMillis, System.currentTimeMillis());
+        }
+    }
+}
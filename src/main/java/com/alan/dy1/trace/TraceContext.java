@@ -0,0 +1,55 @@
+package com.alan.dy1.trace;
+
+import java.util.UUID;
+
+/**
+ * 当前线程所处理的追踪id
+ * 发布消息时从这里取出写入消息头，消费消息时从消息头恢复，同一条流水线上的各阶段由此串起来
+ */
+public final class TraceContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TraceContext() {
+    }
+
+    /**
+     * 当前线程的追踪id，没有时返回null
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 生成新的追踪id
+     */
+    public static String newTraceId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 在当前线程上设置追踪id，关闭返回的Scope时恢复原来的值
+     * @param traceId 追踪id，为null时表示清除
+     */
+    public static Scope open(String traceId) {
+        String previous = CURRENT.get();
+        set(traceId);
+        return () -> set(previous);
+    }
+
+    private static void set(String traceId) {
+        if (traceId == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(traceId);
+        }
+    }
+
+    /**
+     * 追踪id的作用范围，关闭时不抛出受检异常
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
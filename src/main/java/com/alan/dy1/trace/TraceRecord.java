@@ -0,0 +1,81 @@
+package com.alan.dy1.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次新作品检测的追踪记录：博主、发现时间，以及下载、转换、识别各阶段的耗时
+ * 一次检测可能包含多个作品，每个作品识别完成时计一次完成
+ */
+class TraceRecord {
+
+    // 单个追踪最多保留的阶段记录数，重试很多次时丢弃后面的记录
+    private static final int MAX_SPANS = 100;
+
+    private final String traceId;
+    private final int creatorId;
+    private final String url;
+    private final long detectedAt;
+    private final List<Span> spans = new ArrayList<>();
+    private long lastEventAt;
+    private int transcripts;
+    private int droppedSpans;
+
+    TraceRecord(String traceId, int creatorId, String url, long detectedAt) {
+        this.traceId = traceId;
+        this.creatorId = creatorId;
+        this.url = url;
+        this.detectedAt = detectedAt;
+        this.lastEventAt = detectedAt;
+    }
+
+    synchronized void addSpan(String stage, String source, long endedAt, long durationMillis) {
+        lastEventAt = Math.max(lastEventAt, endedAt);
+        if (spans.size() >= MAX_SPANS) {
+            droppedSpans++;
+            return;
+        }
+        spans.add(new Span(stage, source, endedAt - durationMillis, durationMillis));
+    }
+
+    synchronized void transcriptSaved(long savedAt) {
+        transcripts++;
+        lastEventAt = Math.max(lastEventAt, savedAt);
+    }
+
+    /**
+     * 从发现新作品到最近一次阶段结束的时长
+     */
+    synchronized long elapsedMillis() {
+        return lastEventAt - detectedAt;
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("traceId", traceId);
+        snapshot.put("creatorId", creatorId);
+        snapshot.put("url", url);
+        snapshot.put("detectedAt", detectedAt);
+        snapshot.put("elapsedMillis", lastEventAt - detectedAt);
+        snapshot.put("transcripts", transcripts);
+        List<Map<String, Object>> stages = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            Map<String, Object> stage = new LinkedHashMap<>();
+            stage.put("stage", span.stage());
+            stage.put("source", span.source());
+            stage.put("offsetMillis", span.startedAt() - detectedAt);
+            stage.put("durationMillis", span.durationMillis());
+            stages.add(stage);
+        }
+        snapshot.put("stages", stages);
+        if (droppedSpans > 0) {
+            snapshot.put("droppedStages", droppedSpans);
+        }
+        return snapshot;
+    }
+
+    private record Span(String stage, String source, long startedAt, long durationMillis) {
+    }
+}
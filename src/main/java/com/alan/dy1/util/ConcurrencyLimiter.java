@@ -0,0 +1,79 @@
+package com.alan.dy1.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并发数限制器
+ * 按下游资源（外部进程、识别接口、FFmpeg解码）限制同时进行的操作数，与调用方使用哪种线程无关
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final int limit;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * @param name 资源名称
+     * @param limit 最大并发数，小于1时按1处理
+     */
+    public ConcurrencyLimiter(String name, int limit) {
+        this.name = name;
+        this.limit = Math.max(1, limit);
+        this.permits = new Semaphore(this.limit, true);
+    }
+
+    /**
+     * 获取一个许可，达到上限时等待
+     * @return 许可，使用完毕后关闭以归还
+     */
+    public Permit acquire() throws InterruptedException {
+        if (!permits.tryAcquire()) {
+            throttled.incrementAndGet();
+            waiting.incrementAndGet();
+            try {
+                permits.acquire();
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        peak.accumulateAndGet(limit - permits.availablePermits(), Math::max);
+        return new Permit();
+    }
+
+    /**
+     * 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("name", name);
+        stats.put("limit", limit);
+        stats.put("active", limit - permits.availablePermits());
+        stats.put("peak", peak.get());
+        stats.put("waiting", waiting.get());
+        stats.put("throttled", throttled.get());
+        return stats;
+    }
+
+    /**
+     * 一个许可，重复关闭只归还一次
+     */
+    public class Permit implements AutoCloseable {
+
+        private boolean released;
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                permits.release();
+            }
+        }
+    }
+}
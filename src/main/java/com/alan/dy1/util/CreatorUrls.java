@@ -0,0 +1,41 @@
+package com.alan.dy1.util;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * 博主主页URL工具
+ */
+public final class CreatorUrls {
+
+    private CreatorUrls() {
+    }
+
+    /**
+     * 规范化主页URL：去掉首尾空白、查询参数、锚点和末尾斜杠，协议和域名转小写
+     * 例如 https://www.douyin.com/user/xxx?from_tab_name=main&vid=1 规范化为 https://www.douyin.com/user/xxx
+     * @param url 原始URL
+     * @return 规范化后的URL，无法解析时返回去掉空白的原始URL
+     */
+    public static String normalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return trimmed;
+            }
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            while (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String port = uri.getPort() == -1 ? "" : ":" + uri.getPort();
+            return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT) + port + path;
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.alan.dy1.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图
+ * 按微秒对数分桶，每个2的幂区间再等分为8个子桶，记录无锁；分位数取所在桶的上界，
+ * 比实际值最多高出12.5%（不足8微秒时为1微秒）
+ */
+public class LatencyHistogram {
+
+    // 每个2的幂区间的子桶数为2^SUB_BITS
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // 前8个桶各统计1微秒，之后 [2^e, 2^(e+1)) 微秒分为8个桶，最后一个桶为2^40微秒（约12.7天）以上
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒），负数按0处理
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * 统计快照：次数、平均值、P50/P90/P95/P99和最大值，单位毫秒
+     */
+    public Map<String, Object> snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", count);
+        stats.put("avgMillis", count > 0 ? toMillis(totalNanos.sum() / count) : 0.0);
+        stats.put("p50Millis", percentile(snapshot, count, 0.50));
+        stats.put("p90Millis", percentile(snapshot, count, 0.90));
+        stats.put("p95Millis", percentile(snapshot, count, 0.95));
+        stats.put("p99Millis", percentile(snapshot, count, 0.99));
+        stats.put("maxMillis", toMillis(maxNanos.get()));
+        return stats;
+    }
+
+    private double percentile(long[] snapshot, long count, double quantile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(count * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // 桶上界不超过实际最大值
+                return Math.min(toMillis(upperBoundNanos(i)), toMillis(maxNanos.get()));
+            }
+        }
+        return toMillis(maxNanos.get());
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundNanos(int bucket) {
+        if (bucket == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        if (bucket < SUB_BUCKETS) {
+            return TimeUnit.MICROSECONDS.toNanos(bucket + 1);
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return TimeUnit.MICROSECONDS.toNanos((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS));
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.alan.dy1.worker;
+
+import java.io.File;
+
+/**
+ * Python脚本路径工具
+ */
+public final class PythonScripts {
+
+    private PythonScripts() {
+    }
+
+    /**
+     * 解析脚本路径，先按当前工作目录查找，找不到再尝试上级目录
+     * @param scriptPath 脚本相对路径，例如 douyin_tools/get_works_count_from_url.py
+     * @return 脚本文件，不存在时返回null
+     */
+    public static File resolve(String scriptPath) {
+        File scriptFile = new File(scriptPath);
+        if (scriptFile.exists()) {
+            return scriptFile;
+        }
+        File parentFile = new File("../" + scriptPath).getAbsoluteFile();
+        return parentFile.exists() ? parentFile : null;
+    }
+}
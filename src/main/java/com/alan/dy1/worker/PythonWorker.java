@@ -0,0 +1,153 @@
+package com.alan.dy1.worker;
+
+import com.alan.dy1.process.ProcessTrees;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 常驻Python worker进程
+ * 通过stdin/stdout按行交换JSON（JSON-lines协议），一个worker同一时刻只处理一个请求
+ */
+class PythonWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PythonWorker.class);
+
+    // stdout结束标记
+    private static final String EOF = new String("<EOF>");
+
+    private final String name;
+    private final Process process;
+    private final BufferedWriter writer;
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    private final ObjectMapper objectMapper;
+
+    private long nextRequestId;
+    private int requestCount;
+
+    PythonWorker(String name, List<String> command, File workingDirectory, ObjectMapper objectMapper) throws IOException {
+        this.name = name;
+        this.objectMapper = objectMapper;
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(workingDirectory);
+        processBuilder.environment().put("PYTHONIOENCODING", "utf-8");
+        processBuilder.environment().put("PYTHONUNBUFFERED", "1");
+        this.process = processBuilder.start();
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        // stdout交给读线程放入队列，stderr持续排空，避免管道写满阻塞子进程
+        startDaemon(name + "-stdout", () -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.offer(line);
+                }
+            } catch (IOException e) {
+                logger.debug("[{}] 读取stdout结束: {}", name, e.getMessage());
+            } finally {
+                lines.offer(EOF);
+            }
+        });
+        startDaemon(name + "-stderr", () -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.debug("[{}] {}", name, line);
+                }
+            } catch (IOException e) {
+                logger.debug("[{}] 读取stderr结束: {}", name, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 发送一个请求并等待对应id的响应
+     * @param request 请求内容，id字段由worker自动填写
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 响应JSON
+     */
+    JsonNode call(ObjectNode request, long timeoutMillis) throws IOException, TimeoutException, InterruptedException {
+        long requestId = ++nextRequestId;
+        request.put("id", requestId);
+        requestCount++;
+
+        writer.write(objectMapper.writeValueAsString(request));
+        writer.newLine();
+        writer.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            String line = remaining > 0 ? lines.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (line == null) {
+                throw new TimeoutException("worker " + name + " 响应超时（" + timeoutMillis + "ms）");
+            }
+            if (line == EOF) {
+                lines.offer(EOF);
+                throw new IOException("worker " + name + " 已退出，退出码: " + exitCodeOrUnknown());
+            }
+            JsonNode response;
+            try {
+                response = objectMapper.readTree(line);
+            } catch (IOException e) {
+                logger.warn("[{}] 忽略非协议输出: {}", name, line);
+                continue;
+            }
+            if (response != null && response.path("id").asLong(-1) == requestId) {
+                return response;
+            }
+            logger.warn("[{}] 丢弃不匹配的响应: {}", name, line);
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 结束worker进程（连同其启动的浏览器等子进程）
+     */
+    void destroy() {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // 进程可能已退出
+        }
+        ProcessTrees.kill(process.toHandle());
+    }
+
+    private String exitCodeOrUnknown() throws InterruptedException {
+        // stdout关闭时进程可能还没完全退出，稍等片刻再取退出码
+        return process.waitFor(500, TimeUnit.MILLISECONDS) ? String.valueOf(process.exitValue()) : "未知";
+    }
+
+    private static void startDaemon(String threadName, Runnable task) {
+        Thread thread = new Thread(task, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,216 @@
+package com.alan.dy1.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Python worker进程池
+ * 复用常驻的Python解释器和浏览器，避免每次调用都重新启动进程
+ * 支持池大小限制、健康检查、崩溃后重启以及按请求数回收worker
+ */
+public class PythonWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(PythonWorkerPool.class);
+
+    private final String name;
+    private final String pythonCommand;
+    private final String scriptPath;
+    private final List<String> extraArgs;
+    private final int maxRequestsPerWorker;
+    private final long requestTimeoutMillis;
+    private final long healthCheckTimeoutMillis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<PythonWorker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workerSequence = new AtomicInteger();
+
+    // 统计信息
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+
+    private volatile boolean shutdown;
+
+    public PythonWorkerPool(String name, String pythonCommand, String scriptPath, List<String> extraArgs,
+                            int size, int maxRequestsPerWorker, long requestTimeoutMillis, long healthCheckTimeoutMillis) {
+        this.name = name;
+        this.pythonCommand = pythonCommand;
+        this.scriptPath = scriptPath;
+        this.extraArgs = extraArgs;
+        this.maxRequestsPerWorker = maxRequestsPerWorker;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.healthCheckTimeoutMillis = healthCheckTimeoutMillis;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * 创建一个空请求对象
+     */
+    public ObjectNode newRequest() {
+        return objectMapper.createObjectNode();
+    }
+
+    /**
+     * 借用一个worker执行请求，worker按需懒启动
+     * @param request 请求内容
+     * @return worker返回的JSON
+     */
+    public JsonNode execute(ObjectNode request) throws IOException, TimeoutException, InterruptedException {
+        if (shutdown) {
+            throw new IOException("worker池 " + name + " 已关闭");
+        }
+        if (!permits.tryAcquire(requestTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("worker池 " + name + " 繁忙，等待空闲worker超时");
+        }
+        PythonWorker worker = null;
+        try {
+            worker = borrowWorker();
+            requests.incrementAndGet();
+            JsonNode response = worker.call(request, requestTimeoutMillis);
+            releaseWorker(worker);
+            return response;
+        } catch (IOException | TimeoutException | InterruptedException e) {
+            // 崩溃、卡死或被中断的worker直接销毁，下次借用时重新启动
+            if (worker != null) {
+                crashed.incrementAndGet();
+                logger.warn("worker {} 执行失败，销毁并在下次请求时重启: {}", worker.getName(), e.getMessage());
+                worker.destroy();
+            }
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 对空闲worker做健康检查（ping），无响应的worker会被销毁
+     */
+    public void healthCheck() {
+        int candidates = idleWorkers.size();
+        for (int i = 0; i < candidates && !shutdown; i++) {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                PythonWorker worker = idleWorkers.poll();
+                if (worker == null) {
+                    return;
+                }
+                if (ping(worker)) {
+                    idleWorkers.offer(worker);
+                } else {
+                    crashed.incrementAndGet();
+                    worker.destroy();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 关闭池中所有worker
+     */
+    public void shutdown() {
+        shutdown = true;
+        PythonWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+        logger.info("worker池 {} 已关闭", name);
+    }
+
+    /**
+     * 获取池的运行统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("idleWorkers", idleWorkers.size());
+        stats.put("availablePermits", permits.availablePermits());
+        stats.put("requests", requests.get());
+        stats.put("started", started.get());
+        stats.put("crashed", crashed.get());
+        stats.put("recycled", recycled.get());
+        return stats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private PythonWorker borrowWorker() throws IOException {
+        PythonWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+            crashed.incrementAndGet();
+            worker.destroy();
+        }
+        return startWorker();
+    }
+
+    private void releaseWorker(PythonWorker worker) {
+        if (shutdown || !worker.isAlive()) {
+            worker.destroy();
+        } else if (worker.getRequestCount() >= maxRequestsPerWorker) {
+            // 达到最大请求数后回收，防止浏览器内存泄漏累积
+            recycled.incrementAndGet();
+            logger.info("worker {} 已处理 {} 个请求，回收", worker.getName(), worker.getRequestCount());
+            worker.destroy();
+        } else {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    private PythonWorker startWorker() throws IOException {
+        File scriptFile = PythonScripts.resolve(scriptPath);
+        if (scriptFile == null) {
+            throw new IOException("Python脚本未找到: " + scriptPath);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(pythonCommand);
+        command.add(scriptFile.getAbsolutePath());
+        command.add("-w");
+        command.addAll(extraArgs);
+
+        String workerName = name + "-" + workerSequence.incrementAndGet();
+        PythonWorker worker = new PythonWorker(workerName, command, scriptFile.getParentFile(), objectMapper);
+        started.incrementAndGet();
+        logger.info("启动worker {}: {}", workerName, String.join(" ", command));
+        return worker;
+    }
+
+    private boolean ping(PythonWorker worker) {
+        try {
+            ObjectNode request = newRequest();
+            request.put("cmd", "ping");
+            return worker.call(request, healthCheckTimeoutMillis).path("pong").asBoolean(false);
+        } catch (IOException | TimeoutException e) {
+            logger.warn("worker {} 健康检查失败: {}", worker.getName(), e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
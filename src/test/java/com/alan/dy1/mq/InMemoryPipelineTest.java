@@ -0,0 +1,136 @@
+package com.alan.dy1.mq;
+
+import com.alan.dy1.Service.AllStart;
+import com.alan.dy1.Service.AudioService;
+import com.alan.dy1.Service.GetWorkCountService;
+import com.alan.dy1.Service.SpeechRecognitionService;
+import com.alan.dy1.domain.Douyin;
+import com.alan.dy1.domain.SweepResult;
+import com.alan.dy1.domain.Transcript;
+import com.alan.dy1.repository.CreatorCache;
+import com.alan.dy1.repository.DouyinRepository;
+import com.alan.dy1.repository.TranscriptRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * 进程内消息模式下一个博主走完检查、下载、转换和识别四个阶段
+ * 两个Python脚本和百度接口用mock代替，FFmpeg转换、消息传递、去重和入库都是真实的
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pipeline-test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "douyin.scheduler.enabled=false",
+        "audio.streaming.enabled=false",
+        "baidu.asr.cache.enabled=false",
+        "pipeline.retry.initial-delay-ms=200"
+})
+@ActiveProfiles(InMemoryPipelineMessaging.PROFILE)
+class InMemoryPipelineTest {
+
+    private static final String CREATOR_URL = "https://www.douyin.com/user/pipeline-test";
+    private static final String VIDEO_URL = "https://www.douyin.com/video/7300000000000000001";
+    private static final String MP3_NAME = "pipeline-test_7300000000000000001.mp3";
+    private static final String TRANSCRIPT = "测试识别结果";
+
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    @MockBean
+    private GetWorkCountService getWorkCountService;
+
+    @MockBean
+    private AudioService audioService;
+
+    @MockBean
+    private SpeechRecognitionService speechRecognitionService;
+
+    @Autowired
+    private AllStart allStart;
+
+    @Autowired
+    private DouyinRepository douyinRepository;
+
+    @Autowired
+    private CreatorCache creatorCache;
+
+    @Autowired
+    private TranscriptRepository transcriptRepository;
+
+    @Autowired
+    private PipelineCoordinator pipelineCoordinator;
+
+    @Test
+    void newWorkGoesThroughAllStages() throws Exception {
+        Douyin creator = douyinRepository.save(new Douyin(CREATOR_URL, "流水线测试博主", 0, true, 100));
+        creatorCache.invalidateAll();
+
+        when(getWorkCountService.getUserWorksCount(CREATOR_URL)).thenReturn(ResponseEntity.ok(Map.of("number", 101)));
+        when(audioService.downloadAndConvertAudio(eq(CREATOR_URL), eq(1))).thenAnswer(invocation -> {
+            // 代替下载脚本：把仓库中最小的样本MP3放到下载目录
+            Path target = Paths.get("douyin_tools/audio", MP3_NAME);
+            Files.copy(smallestFixture(), target, StandardCopyOption.REPLACE_EXISTING);
+            Map<String, Object> file = Map.of("file_name", MP3_NAME, "file_path", target.toString(), "video_url", VIDEO_URL);
+            return ResponseEntity.ok(Map.of("success", true, "files", List.of(file)));
+        });
+        when(speechRecognitionService.recognizeSpeech(anyString())).thenReturn(TRANSCRIPT);
+
+        allStart.startAllServices();
+        SweepResult sweep = allStart.getLastSweepResult();
+        assertEquals(1, sweep.getNewWorks());
+
+        awaitDrain();
+        List<Transcript> transcripts = transcriptRepository.findAll();
+        assertEquals(1, transcripts.size());
+        assertEquals(TRANSCRIPT, transcripts.get(0).getText());
+        assertEquals("pipeline-test_7300000000000000001.wav", transcripts.get(0).getSource());
+        // 下载阶段完成后作品数推进到检查到的值，识别完成后WAV被删除
+        assertEquals(101, douyinRepository.findById(creator.getId()).orElseThrow().getWorkNumber());
+        assertEquals(false, Files.exists(Paths.get("douyin_tools/converted_audio", "pipeline-test_7300000000000000001.wav")));
+    }
+
+    /**
+     * 等待各阶段的在途消息全部处理完
+     */
+    @SuppressWarnings("unchecked")
+    private void awaitDrain() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            List<Map<String, Object>> stages = (List<Map<String, Object>>) pipelineCoordinator.getStats().get("stages");
+            if (transcriptRepository.count() > 0
+                    && stages.stream().allMatch(stage -> ((Number) stage.get("inFlight")).intValue() == 0)) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("流水线未在 " + TIMEOUT_MILLIS + "ms 内处理完: " + pipelineCoordinator.getStats());
+    }
+
+    private static Path smallestFixture() throws Exception {
+        try (Stream<Path> files = Files.list(Paths.get("douyin_tools/audio"))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".mp3"))
+                    .filter(file -> !file.getFileName().toString().equals(MP3_NAME))
+                    .min(Comparator.comparingLong(file -> file.toFile().length()))
+                    .orElseThrow(() -> new AssertionError("douyin_tools/audio 中没有样本MP3"));
+        }
+    }
+}
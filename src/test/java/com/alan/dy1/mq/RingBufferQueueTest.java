@@ -0,0 +1,138 @@
+package com.alan.dy1.mq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferQueueTest {
+
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(2, new RingBufferQueue<Integer>(1).capacity());
+        assertEquals(2, new RingBufferQueue<Integer>(2).capacity());
+        assertEquals(4, new RingBufferQueue<Integer>(3).capacity());
+        assertEquals(1024, new RingBufferQueue<Integer>(1024).capacity());
+        assertEquals(2048, new RingBufferQueue<Integer>(1025).capacity());
+    }
+
+    @Test
+    void pollOnEmptyReturnsNull() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4);
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+
+        assertTrue(queue.offer(1));
+        assertEquals(1, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void offerOnFullReturnsFalse() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+
+        // 读走一个后腾出一个槽位
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        assertFalse(queue.offer(5));
+    }
+
+    @Test
+    void wrapsAroundInOrder() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4);
+        int next = 0;
+        int expected = 0;
+        // 每圈写3个读3个，写位置和读位置多次越过数组末尾
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(queue.offer(next++));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected++, queue.poll());
+            }
+            assertNull(queue.poll());
+        }
+        // 越过末尾后仍能写满再读空
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(next++));
+        }
+        assertFalse(queue.offer(next));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected++, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void concurrentProducersAndConsumersDeliverEachElementOnce() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 5000;
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(64);
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            Set<Future<?>> futures = new HashSet<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!queue.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (remaining.get() > 0) {
+                        Integer element = queue.poll();
+                        if (element == null) {
+                            Thread.onSpinWait();
+                            continue;
+                        }
+                        if (!received.add(element)) {
+                            duplicates.incrementAndGet();
+                        }
+                        remaining.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(producers * perProducer, received.size());
+        assertNull(queue.poll());
+    }
+}